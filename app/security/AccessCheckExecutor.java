@@ -0,0 +1,81 @@
+package security;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import play.db.jpa.JPA;
+
+/**
+ * Runs access checks evaluated in parallel, see {@link SecurityConfig#PARALLEL_ACCESS_CHECKS_KEY}. Checks run on a
+ * dedicated pool of {@link SecurityConfig#PARALLEL_ACCESS_CHECKS_THREADS_KEY} threads, never on Play jobs pool, so a
+ * busy jobs pool can not block requests. {@link SecurityContext} of current invocation is propagated to checks.
+ * <p/>
+ * Checks run without JPA transaction. Callers inside a JPA transaction check sequentially in that transaction,
+ * because entities of their session must not be used by other threads.
+ */
+public final class AccessCheckExecutor {
+
+    private static ExecutorService executor;
+
+    private AccessCheckExecutor() {
+    }
+
+    /**
+     * Checks if access checks may be submitted from current thread. Checks are not submitted from other access
+     * checks, which would wait for a pool they may occupy themselves, nor inside a JPA transaction; they run
+     * sequentially instead.
+     *
+     * @return true, if access checks of current thread may run in parallel
+     */
+    static boolean isAvailable() {
+        return !(Thread.currentThread() instanceof AccessCheckThread)
+                && !(JPA.isEnabled() && JPA.isInsideTransaction());
+    }
+
+    /**
+     * Runs given access check asynchronously.
+     *
+     * @param check the check
+     * @return the future of the check, cancelling it before it starts skips the check
+     */
+    static Future<?> submit(Runnable check) {
+        return getExecutor(SecurityConfig.get().getParallelAccessCheckThreads()).submit(SecurityContext.wrap(check));
+    }
+
+    /**
+     * Stops the dedicated pool, it is created again on next use.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor(int threads) {
+        if (executor == null) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    return new AccessCheckThread(runnable, threadNumber.incrementAndGet());
+                }
+            });
+        }
+
+        return executor;
+    }
+
+    /**
+     * Thread of the dedicated pool.
+     */
+    private static final class AccessCheckThread extends Thread {
+
+        AccessCheckThread(Runnable runnable, int number) {
+            super(runnable, "security-access-check-" + number);
+            setDaemon(true);
+        }
+    }
+}
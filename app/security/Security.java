@@ -1,27 +1,48 @@
 package security;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import org.hibernate.criterion.Restrictions;
 
-import play.Play;
+import play.Logger;
 import play.exceptions.ConfigurationException;
+import play.exceptions.UnexpectedException;
+import play.libs.F;
 import play.mvc.Http.Request;
 import security.annotation.*;
 import security.annotation.Access.AccessType;
+import security.cache.CachingAccessHandler;
+import security.cache.LruCache;
+import security.handler.AbstractAccessHandler;
 import security.handler.AccessHandler;
 import security.handler.AccessResult;
+import security.handler.AsyncAccessHandler;
+import security.handler.BatchAccessHandler;
+import security.handler.MaskAccessHandler;
+import security.handler.PrincipalKeyProvider;
+import security.handler.RestrictedResourcesHandler;
+import security.handler.RestrictedResourcesProvider;
 import security.handler.SecurityHandler;
-import security.role.Role;
+import security.handler.SecurityListener;
 import security.role.RoleHolder;
+import security.role.RoleMask;
 
 /**
  * Perform security checks on methods and objects annotated with {@link Unsecured}, {@link RoleRequired}, {@link Restrictions},
- * {@link Access}, {@link AnyRole}. Logic of finding logged user, security access failure, acl checks is implemented
+ * {@link Access}, {@link AnyRole}, {@link RestrictedResource}. Logic of finding logged user, security access failure, acl checks is implemented
  * by {@link SecurityHandler}.
  * 
  * @author Maciej Kujawski <M.Kujawski@tt.com.pl>
@@ -34,14 +55,26 @@ public class Security {
 
     public static final String CACHE_PER_REQUEST = "security.cache-user";
 
-    private static Security security;
+    private static final SecurityListener[] NO_LISTENERS = new SecurityListener[0];
+
+    private static final AclManaged[] NO_DENIED_OBJECTS = new AclManaged[0];
+
+    private static volatile Security security;
     
     SecurityHandler securityHandler;
+
+    private final LruCache<Object, CachedRoleHolder> roleHolderCache;
+
+    private volatile CachingAccessHandler cachingAccessHandler;
+
+    private final LruCache<ResourceDecisionKey, AccessResult> resourceCache;
+
+    private volatile SecurityListener[] listeners = NO_LISTENERS;
     
     
     @SuppressWarnings("unchecked")
     private Security() {
-        String handlerName = Play.configuration.getProperty(SECURITY_HANDLER_KEY);
+        String handlerName = SecurityConfig.get().getHandlerClassName();
         if (handlerName == null) {
             throw new ConfigurationException("security.handler must be defined");
         }
@@ -52,17 +85,79 @@ public class Security {
         } catch (Exception e) {
             throw new ConfigurationException(String.format("Unable to create SecurityHandler instance: [%s]", e.getMessage()));
         }
+
+        SecurityConfig config = SecurityConfig.get();
+        if (config.isRoleHolderCache()) {
+            roleHolderCache = new LruCache<Object, CachedRoleHolder>(config.getRoleHolderCacheSize(),
+                    config.getRoleHolderCacheTtl(), TimeUnit.SECONDS);
+        } else {
+            roleHolderCache = null;
+        }
+
+        if (config.isResourceCache()) {
+            resourceCache = new LruCache<ResourceDecisionKey, AccessResult>(config.getResourceCacheSize(),
+                    config.getResourceCacheTtl(), TimeUnit.SECONDS);
+        } else {
+            resourceCache = null;
+        }
+
+        for (String listenerName : config.getListenerClassNames()) {
+            try {
+                addListener((SecurityListener) Class.forName(listenerName).newInstance());
+            } catch (Exception e) {
+                throw new ConfigurationException(String.format("Unable to create SecurityListener instance: [%s]",
+                        e.getMessage()));
+            }
+        }
     }
     
+    /**
+     * Gets the security instance, created once on first use. It owns caches and listeners, so all threads must share
+     * the same instance.
+     *
+     * @return the security
+     */
     public static Security getInstance() {
-        if (security == null) {
-            security = new Security();
+        Security instance = security;
+        if (instance == null) {
+            synchronized (Security.class) {
+                instance = security;
+                if (instance == null) {
+                    instance = new Security();
+                    security = instance;
+                }
+            }
         }
-        
-        return security;
+
+        return instance;
     }
     
 
+    /**
+     * Registers listener notified about security checks.
+     *
+     * @param listener the listener
+     */
+    public synchronized void addListener(SecurityListener listener) {
+        SecurityListener[] registered = new SecurityListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, registered, 0, listeners.length);
+        registered[listeners.length] = listener;
+        listeners = registered;
+    }
+
+    /**
+     * Unregisters listener notified about security checks.
+     *
+     * @param listener the listener
+     */
+    public synchronized void removeListener(SecurityListener listener) {
+        List<SecurityListener> registered = new ArrayList<SecurityListener>(Arrays.asList(listeners));
+        if (registered.remove(listener)) {
+            listeners = registered.isEmpty() ? NO_LISTENERS
+                    : registered.toArray(new SecurityListener[registered.size()]);
+        }
+    }
+
     /**
      * Execute security checks of given method if method is not annotated with {@link Unsecured} annotation:
      * <ul>
@@ -77,56 +172,129 @@ public class Security {
      * @param args the args
      */
     public void executeSecurityChecks(Class<?> clazz, String methodName, Class<?>[] paramTypes, Object... args) {
-        Method method = getMethod(clazz, methodName, paramTypes);
-        
-        if (method != null && !isUnsecured(method)) {
-            RoleHolder roleHolder = getRoleHolder();
-            
-            executeRoleRequiredCheck(roleHolder, method);
-            executeAnyRoleCheck(roleHolder, method);
-            executeAccessCheck(roleHolder, method, args);
+        SecurityPlan plan = SecurityPlan.forMethod(clazz, methodName, paramTypes);
+
+        SecurityPlan.AccessParameter[] parameters = plan.getAccessParameters();
+        Object[] accessArguments = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            accessArguments[i] = args[parameters[i].getIndex()];
         }
+
+        executeSecurityChecks(plan, accessArguments);
     }
 
     /**
-     * Gets the method with given parameter types.
+     * Execute security checks described by given plan of method without {@link Access} parameters.
      *
-     * @param clazz the clazz
-     * @param methodName the method name
-     * @param paramTypes the param types
-     * @return the method
+     * @param plan the plan of invoked method
+     * @see #executeSecurityChecks(Class, String, Class[], Object...)
      */
-    private Method getMethod(Class<?> clazz, String methodName, Class<?>[] paramTypes) {
-        Method method = null;
-        try {
-            method = clazz.getDeclaredMethod(methodName, paramTypes);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
+    public void executeSecurityChecks(SecurityPlan plan) {
+        if (plan.hasChecks()) {
+            executeRoleChecks(getRoleHolder(plan), plan);
         }
-        return method;
     }
-    
+
+    /**
+     * Execute security checks described by given plan of method with single {@link Access} parameter.
+     *
+     * @param plan the plan of invoked method
+     * @param accessArgument the value of the {@link Access} parameter
+     * @see #executeSecurityChecks(Class, String, Class[], Object...)
+     */
+    public void executeSecurityChecks(SecurityPlan plan, Object accessArgument) {
+        if (plan.hasChecks()) {
+            RoleHolder roleHolder = getRoleHolder(plan);
+
+            if (executeRoleChecks(roleHolder, plan)) {
+                executeAccessCheck(roleHolder, plan, accessArgument);
+            }
+        }
+    }
+
+    /**
+     * Execute security checks described by given plan of method with two {@link Access} parameters.
+     *
+     * @param plan the plan of invoked method
+     * @param accessArgument0 the value of the first {@link Access} parameter
+     * @param accessArgument1 the value of the second {@link Access} parameter
+     * @see #executeSecurityChecks(Class, String, Class[], Object...)
+     */
+    public void executeSecurityChecks(SecurityPlan plan, Object accessArgument0, Object accessArgument1) {
+        if (plan.hasChecks()) {
+            RoleHolder roleHolder = getRoleHolder(plan);
+
+            if (executeRoleChecks(roleHolder, plan)) {
+                executeAccessCheck(roleHolder, plan, accessArgument0, accessArgument1);
+            }
+        }
+    }
+
+    /**
+     * Execute security checks described by given plan.
+     *
+     * @param plan the plan of invoked method
+     * @param accessArguments the values of {@link Access} parameters in order of {@link SecurityPlan#getAccessParameters()}
+     * @see #executeSecurityChecks(Class, String, Class[], Object...)
+     */
+    public void executeSecurityChecks(SecurityPlan plan, Object[] accessArguments) {
+        if (plan.hasChecks()) {
+            RoleHolder roleHolder = getRoleHolder(plan);
+
+            if (executeRoleChecks(roleHolder, plan)) {
+                executeAccessCheck(roleHolder, plan, accessArguments);
+            }
+        }
+    }
+
     /**
      * Checks that current user has at least one of passed roles.
      *
      * @param roles the roles names
-     * @return true, if user has all roles with given names
+     * @return true, if user has at least one of roles with given names
      */
     public boolean hasRole(List<String> roles) {
+        return hasAnyRole(RoleMask.of(roles));
+    }
+
+    /**
+     * Checks that current user has all passed roles.
+     *
+     * @param roles the roles names
+     * @return true, if user has all roles with given names
+     */
+    public boolean hasRoles(List<String> roles) {
+        return hasAllRoles(RoleMask.of(roles));
+    }
+
+    /**
+     * Checks that current user has at least one of roles of given mask.
+     *
+     * @param roles the role mask
+     * @return true, if user has at least one of roles
+     */
+    public boolean hasAnyRole(RoleMask roles) {
         RoleHolder roleHolder = getRoleHolder();
         if (roleHolder == null) {
             return false;
         }
 
-        boolean hasAccess = false;
-        for (String roleName : roles) {
-            hasAccess = containsRoleWithName(roleHolder.getRoles(), roleName);
-            if (hasAccess) {
-                break;
-            }
+        return getRoleMask(roleHolder).intersects(roles);
+    }
+
+    /**
+     * Checks that current user has all roles of given mask.
+     *
+     * @param roles the role mask
+     * @return true, if user has all roles
+     */
+    public boolean hasAllRoles(RoleMask roles) {
+        RoleHolder roleHolder = getRoleHolder();
+        if (roleHolder == null) {
+            return false;
         }
 
-        return hasAccess;
+        return getRoleMask(roleHolder).containsAll(roles);
     }
     
     /**
@@ -148,9 +316,23 @@ public class Security {
     public boolean hasAccess(AclManaged contextObject, AccessType[] accessTypes) {
         RoleHolder roleHolder = getRoleHolder();
 
-        AccessHandler accessHandler = securityHandler.getAccessHandler();
+        AccessResult accessResult = checkAccess(roleHolder, contextObject, AccessType.toMask(accessTypes), accessTypes);
+
+        return accessResult == AccessResult.ALLOWED;
+    }
 
-        AccessResult accessResult = accessHandler.checkAccess(roleHolder, contextObject, accessTypes);
+    /**
+     * Checks current user has access for given context object. No access types array is created if
+     * {@link AccessHandler} implements {@link MaskAccessHandler}.
+     *
+     * @param contextObject the context object
+     * @param accessMask    the mask of access types, see {@link AccessType#toMask(AccessType...)}
+     * @return true, if successful
+     */
+    public boolean hasAccess(AclManaged contextObject, int accessMask) {
+        RoleHolder roleHolder = getRoleHolder();
+
+        AccessResult accessResult = checkAccess(roleHolder, contextObject, accessMask, null);
 
         return accessResult == AccessResult.ALLOWED;
     }
@@ -174,7 +356,127 @@ public class Security {
      * @return true, if successful
      */
     public boolean hasAccess(AclManaged contextObject, AccessType accessType) {
-        return hasAccess(contextObject, new AccessType[]{accessType});
+        return hasAccess(contextObject, accessType.getCode());
+    }
+
+    /**
+     * Checks current user has access for given context object without blocking current thread. Access is checked by
+     * {@link AsyncAccessHandler} or, if {@link AccessHandler} is synchronous, by a {@link SecurityJob}. Current user is
+     * resolved before this method returns. Controllers can suspend until access is checked with
+     * <code>await(promise)</code>.
+     *
+     * @param contextObject the context object
+     * @param accessTypes   the access types
+     * @return the promise of access result
+     */
+    public F.Promise<AccessResult> checkAccessAsync(final AclManaged contextObject, final AccessType... accessTypes) {
+        final RoleHolder roleHolder = getRoleHolder();
+        final AccessHandler accessHandler = getAccessHandler();
+
+        final SecurityListener[] listeners = this.listeners;
+        final long start = startTimer(listeners);
+        F.Promise<AccessResult> accessResult;
+        if (accessHandler instanceof AsyncAccessHandler) {
+            accessResult = ((AsyncAccessHandler) accessHandler).checkAccessAsync(roleHolder, contextObject,
+                    accessTypes);
+        } else {
+            accessResult = new SecurityJob<AccessResult>() {
+                @Override
+                public AccessResult doJobWithResult() {
+                    return accessHandler.checkAccess(roleHolder, contextObject, accessTypes);
+                }
+            }.now();
+        }
+
+        accessResult.onRedeem(new F.Action<F.Promise<AccessResult>>() {
+            public void invoke(F.Promise<AccessResult> result) {
+                try {
+                    recordAccessDecision(listeners, start, roleHolder, contextObject, AccessType.toMask(accessTypes),
+                            result.get());
+                } catch (ExecutionException e) {
+                    SecurityMetrics.ACCESS_CHECK.recordSince(start);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        return accessResult;
+    }
+
+    /**
+     * Checks current user has access for given context object without blocking current thread, see
+     * {@link #checkAccessAsync(AclManaged, AccessType...)}.
+     *
+     * @param contextObject the context object
+     * @param accessTypes   the access types
+     * @return the promise of true, if access is allowed
+     */
+    public F.Promise<Boolean> hasAccessAsync(AclManaged contextObject, AccessType... accessTypes) {
+        final F.Promise<Boolean> allowed = new F.Promise<Boolean>();
+
+        checkAccessAsync(contextObject, accessTypes).onRedeem(new F.Action<F.Promise<AccessResult>>() {
+            public void invoke(F.Promise<AccessResult> result) {
+                try {
+                    allowed.invoke(result.get() == AccessResult.ALLOWED);
+                } catch (ExecutionException e) {
+                    allowed.invokeWithException(e.getCause());
+                } catch (InterruptedException e) {
+                    allowed.invokeWithException(e);
+                }
+            }
+        });
+
+        return allowed;
+    }
+
+    /**
+     * Checks current user has access for each of context objects. Objects are checked at once if {@link AccessHandler}
+     * implements {@link BatchAccessHandler}.
+     *
+     * @param contextObjects the context objects
+     * @param accessTypes    the access types
+     * @return the set with bit of i-th object (in iteration order) set if access is allowed
+     */
+    public BitSet checkAccessBatch(Collection<? extends AclManaged> contextObjects, AccessType... accessTypes) {
+        if (contextObjects.isEmpty()) {
+            return new BitSet();
+        }
+
+        RoleHolder roleHolder = getRoleHolder();
+        AccessHandler accessHandler = getAccessHandler();
+
+        SecurityListener[] listeners = this.listeners;
+        long start = startTimer(listeners);
+        BitSet allowed = accessHandler instanceof BatchAccessHandler
+                ? ((BatchAccessHandler) accessHandler).checkAccess(roleHolder, contextObjects, accessTypes)
+                : AbstractAccessHandler.checkEach(accessHandler, roleHolder, contextObjects, accessTypes);
+        SecurityMetrics.ACCESS_CHECK.recordSince(start);
+        if (listeners.length > 0) {
+            fireAccessDecisions(listeners, roleHolder, contextObjects, AccessType.toMask(accessTypes), allowed,
+                    System.nanoTime() - start);
+        }
+
+        return allowed;
+    }
+
+    /**
+     * Filters context objects which current user has access for, see {@link #checkAccessBatch(Collection, AccessType...)}.
+     *
+     * @param <T> the type of context objects
+     * @param contextObjects the context objects
+     * @param accessTypes the access types
+     * @return the accessible objects in order of given list
+     */
+    public <T extends AclManaged> List<T> filterAccessible(List<T> contextObjects, AccessType... accessTypes) {
+        BitSet allowed = checkAccessBatch(contextObjects, accessTypes);
+
+        List<T> accessible = new ArrayList<T>(allowed.cardinality());
+        for (int i = allowed.nextSetBit(0); i >= 0; i = allowed.nextSetBit(i + 1)) {
+            accessible.add(contextObjects.get(i));
+        }
+
+        return accessible;
     }
 
     /**
@@ -221,147 +523,1060 @@ public class Security {
     }
 
     /**
-     * Execute role required checkif there is annotation {@link RoleRequired} on given method or its class.
-     * 
-     * @param method the method
+     * Convert List<String or AccessType> to mask of access types that can be used to test access
+     *
+     * @param values the access types
+     * @return the access mask
+     * @see #hasAccess(AclManaged, int)
      */
-    private void executeRoleRequiredCheck(RoleHolder roleHolder, Method method) {
-        RoleRequired roleRequired = getAnnotationFromMethodOrClass(method, RoleRequired.class);
+    public int toAccessMask(List values) {
+        int mask = 0;
+        for (Object value : values) {
+            if (value instanceof AccessType) {
+                mask |= ((AccessType) value).getCode();
+            } else if (value instanceof CharSequence) {
+                mask |= toAccess((CharSequence) value).getCode();
+            } else {
+                throw new IllegalArgumentException("Access can only be expressed using String or " +
+                        "AccessType objects. Cannot cast " + value + " to either.");
+            }
+        }
+        return mask;
+    }
 
-        if (roleRequired != null && roleRequired.value().length > 0) {
-            
-            if (roleHolder == null) {
-                securityHandler.onAccessFailure(method);
+    /**
+     * Checks current user has access to named resources using {@link RestrictedResourcesHandler}.
+     *
+     * @param resourceNames      the resource names
+     * @param resourceParameters the additional information on resources, may be null
+     * @param allowUnspecified   allow access if access to resources is not specified
+     * @return true, if access is allowed
+     */
+    public boolean checkRestrictedResource(List<String> resourceNames, Map<String, Object> resourceParameters,
+            boolean allowUnspecified) {
+        AccessResult result = checkRestrictedResource(getRoleHolder(), resourceNames, resourceParameters);
+
+        return result == AccessResult.ALLOWED || (allowUnspecified && result == AccessResult.NOT_SPECIFIED);
+    }
+
+    /**
+     * Checks role holder has access to named resources using {@link RestrictedResourcesHandler} of
+     * {@link SecurityHandler} implementing {@link RestrictedResourcesProvider}. Decisions are memoised in
+     * {@link SecurityContext} of current invocation. Decisions without resource parameters are also cached across
+     * requests by role set of user if {@link SecurityConfig#RESOURCE_CACHE_KEY} is enabled.
+     *
+     * @param roleHolder         the role holder
+     * @param resourceNames      the resource names
+     * @param resourceParameters the additional information on resources, may be null
+     * @return the access result, {@link AccessResult#NOT_SPECIFIED} if there is no restricted resources handler
+     */
+    public AccessResult checkRestrictedResource(RoleHolder roleHolder, List<String> resourceNames,
+            Map<String, Object> resourceParameters) {
+        RestrictedResourcesHandler resourcesHandler = getRestrictedResourcesHandler();
+        if (resourcesHandler == null) {
+            return AccessResult.NOT_SPECIFIED;
+        }
+
+        SecurityContext context = SecurityContext.current();
+        ResourceKey key = context != null ? new ResourceKey(roleHolder, resourceNames, resourceParameters) : null;
+        if (key != null) {
+            AccessResult memoised = (AccessResult) context.getCheckResult(key);
+            if (memoised != null) {
+                return memoised;
+            }
+        }
+
+        ResourceDecisionKey decisionKey = resourceCache != null
+                && (resourceParameters == null || resourceParameters.isEmpty())
+                ? new ResourceDecisionKey(roleHolder != null, roleHolder != null ? getRoleMask(roleHolder) : RoleMask.EMPTY,
+                        resourceNames)
+                : null;
+        AccessResult result = decisionKey != null ? resourceCache.get(decisionKey) : null;
+        if (decisionKey != null) {
+            if (result != null) {
+                SecurityMetrics.RESOURCE_CACHE.hit();
             } else {
-                boolean hasAccess = false;
-                for (String requiredRoleName : roleRequired.value()) {
-                    if (containsRoleWithName(roleHolder.getRoles(), requiredRoleName)) {
-                        hasAccess = true;
-                        break;
-                    }
-                }
+                SecurityMetrics.RESOURCE_CACHE.miss();
+            }
+        }
 
-                if (!hasAccess) {
-                    securityHandler.onAccessFailure(method);
-                }
+        if (result == null) {
+            result = resourcesHandler.checkAccess(roleHolder, resourceNames, resourceParameters);
+            if (result == null) {
+                result = AccessResult.NOT_SPECIFIED;
+            }
+            if (decisionKey != null) {
+                resourceCache.put(decisionKey.copy(), result);
             }
         }
+
+        if (key != null) {
+            context.putCheckResult(key.copy(), result);
+        }
+        return result;
     }
 
-    private RoleHolder getRoleHolder() {
+    /**
+     * Removes all restricted resource decisions cached across requests, e.g. after permissions of roles changed.
+     */
+    public void invalidateResourceDecisions() {
+        if (resourceCache != null) {
+            resourceCache.clear();
+        }
+    }
+
+    /**
+     * Execute restricted resource check if there is annotation {@link RestrictedResource} on planned method or its
+     * class. Unspecified access is a failure unless {@link RestrictedResource#staticFallback()} is set.
+     *
+     * @param roleHolder the role holder
+     * @param plan the plan
+     */
+    public void executeRestrictedResourceCheck(RoleHolder roleHolder, SecurityPlan plan) {
+        if (!isRestrictedResourceAllowed(roleHolder, plan)) {
+            onAccessFailure(plan);
+        }
+    }
+
+    /**
+     * Checks restricted resources of {@link RestrictedResource} annotation on planned method or its class.
+     * Unspecified access is denied unless {@link RestrictedResource#staticFallback()} is set.
+     *
+     * @param roleHolder the role holder
+     * @param plan the plan
+     * @return true, if there is no restricted resource or access to it is allowed
+     */
+    public boolean isRestrictedResourceAllowed(RoleHolder roleHolder, SecurityPlan plan) {
+        if (plan.getResourceNames().isEmpty()) {
+            return true;
+        }
+
+        AccessResult result = checkRestrictedResource(roleHolder, plan.getResourceNames(), null);
+        return result == AccessResult.ALLOWED || (result == AccessResult.NOT_SPECIFIED && plan.isStaticFallback());
+    }
+
+    private RestrictedResourcesHandler getRestrictedResourcesHandler() {
+        if (securityHandler instanceof RestrictedResourcesProvider) {
+            return ((RestrictedResourcesProvider) securityHandler).getRestrictedResourcesHandler();
+        }
+
+        return null;
+    }
+
+    /**
+     * Execute restricted resource, role required and role holder present checks of planned method. Only the first
+     * failed check is reported, the following checks are skipped if {@link SecurityHandler} does not throw.
+     *
+     * @param roleHolder the role holder
+     * @param plan the plan
+     * @return false, if access failure was reported
+     */
+    private boolean executeRoleChecks(RoleHolder roleHolder, SecurityPlan plan) {
+        if (!isRestrictedResourceAllowed(roleHolder, plan) || !hasRequiredRole(roleHolder, plan)
+                || (plan.isAnyRole() && roleHolder == null)) {
+            onAccessFailure(plan);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks that role holder has at least one of roles required by {@link RoleRequired} of planned method or its class.
+     *
+     * @param roleHolder the role holder
+     * @param plan the plan
+     * @return true, if there is no role restriction or role holder has one of required roles
+     */
+    public boolean hasRequiredRole(RoleHolder roleHolder, SecurityPlan plan) {
+        RoleMask requiredRoles = plan.getRoleMask();
+
+        if (requiredRoles.isEmpty()) {
+            return true;
+        }
+        if (roleHolder == null) {
+            return false;
+        }
+
+        return getRoleMask(roleHolder).intersects(requiredRoles);
+    }
+
+    /**
+     * Gets the mask of roles of given role holder. The mask is materialised once per {@link SecurityContext} for the
+     * same role holder, so its roles are not read again by following checks.
+     *
+     * @param roleHolder the role holder
+     * @return the role mask
+     */
+    public RoleMask getRoleMask(RoleHolder roleHolder) {
+        SecurityContext context = SecurityContext.current();
+
+        return context != null ? context.getRoleMask(roleHolder) : RoleMask.of(roleHolder);
+    }
+
+    /**
+     * Reports access failure of planned method to {@link SecurityHandler}.
+     *
+     * @param plan the plan
+     */
+    public void onAccessFailure(SecurityPlan plan) {
+        reportDenied(plan, NO_DENIED_OBJECTS);
+        securityHandler.onAccessFailure(plan.getMethod());
+    }
+
+    /**
+     * Gets the current {@link RoleHolder} from {@link SecurityContext} of current invocation, request cache or
+     * {@link SecurityHandler}.
+     *
+     * @return the role holder or null if there is no logged user
+     */
+    public RoleHolder getRoleHolder() {
+        SecurityListener[] listeners = this.listeners;
+        long start = startTimer(listeners);
+        RoleHolder roleHolder;
+
+        SecurityContext context = SecurityContext.current();
+        if (context != null) {
+            roleHolder = context.getRoleHolder(this);
+        } else {
+            beforeRoleCheck();
+            roleHolder = lookupRoleHolder();
+        }
+
+        SecurityMetrics.ROLE_HOLDER.recordSince(start);
+        if (listeners.length > 0) {
+            fireRoleHolderResolved(listeners, roleHolder, System.nanoTime() - start);
+        }
+        return roleHolder;
+    }
+
+    /**
+     * Gets the current {@link RoleHolder} on invocation of planned method, see {@link #getRoleHolder()}. The invocation
+     * is counted in metrics of the method and reported to {@link SecurityListener}s as start of checks.
+     *
+     * @param plan the plan of invoked method
+     * @return the role holder or null if there is no logged user
+     */
+    public RoleHolder getRoleHolder(SecurityPlan plan) {
+        plan.getMetrics().onCheck();
+        SecurityListener[] listeners = this.listeners;
+        if (listeners.length > 0) {
+            fireCheckStart(listeners, plan, System.nanoTime());
+        }
+
+        return getRoleHolder();
+    }
+
+    void beforeRoleCheck() {
         securityHandler.beforeRoleCheck();
+    }
+
+    RoleHolder lookupRoleHolder() {
+        Request request = Request.current();
 
-        RoleHolder roleHolder = (RoleHolder) Request.current().args.get(CACHE_PER_REQUEST);
+        RoleHolder roleHolder = request != null ? (RoleHolder) request.args.get(CACHE_PER_REQUEST) : null;
         if (roleHolder == null) {
-            roleHolder = securityHandler.getRoleHolder();
+            roleHolder = loadRoleHolder();
             
-            if (Boolean.valueOf(Play.configuration.getProperty(CACHE_USER_KEY, "false"))) {
-                Request.current().args.put(CACHE_PER_REQUEST, roleHolder);
+            if (request != null && SecurityConfig.get().isCacheUserPerRequest()) {
+                SecurityMetrics.REQUEST_CACHE.miss();
+                request.args.put(CACHE_PER_REQUEST, roleHolder);
             }
+        } else {
+            SecurityMetrics.REQUEST_CACHE.hit();
         }
 
         return roleHolder;
     }
 
     /**
-     * Execute access check using {@link AccessHandler} on given args of passed method which are annotated with {@link Access} annotation.
-     * 
-     * @param method the method
-     * @param args the args
+     * Gets the role holder from {@link SecurityHandler} or from cache of role holders if it is enabled and
+     * {@link SecurityHandler} implements {@link PrincipalKeyProvider}.
+     *
+     * @return the role holder
+     */
+    private RoleHolder loadRoleHolder() {
+        Object principalKey = getPrincipalKey();
+        if (principalKey == null) {
+            return securityHandler.getRoleHolder();
+        }
+
+        CachedRoleHolder cached = roleHolderCache.get(principalKey);
+        if (cached == null || !cached.roleMask.isCurrent()) {
+            SecurityMetrics.ROLE_HOLDER_CACHE.miss();
+            RoleHolder roleHolder = securityHandler.getRoleHolder();
+            if (roleHolder == null) {
+                return null;
+            }
+
+            cached = new CachedRoleHolder(roleHolder, RoleMask.of(roleHolder));
+            roleHolderCache.put(principalKey, cached);
+        } else {
+            SecurityMetrics.ROLE_HOLDER_CACHE.hit();
+        }
+
+        SecurityContext context = SecurityContext.current();
+        if (context != null) {
+            context.setRoleMask(cached.roleHolder, cached.roleMask);
+        }
+
+        return cached.roleHolder;
+    }
+
+    /**
+     * Gets the key of current user from {@link SecurityHandler} implementing {@link PrincipalKeyProvider}.
+     *
+     * @return the principal key or null if there is no logged user, caching is disabled or not supported by handler
+     */
+    private Object getPrincipalKey() {
+        if (roleHolderCache != null && securityHandler instanceof PrincipalKeyProvider) {
+            return ((PrincipalKeyProvider) securityHandler).getPrincipalKey();
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes cached role holder of given user, e.g. after their roles were changed. Role holder kept by
+     * {@link SecurityContext} of current invocation is resolved again too.
+     *
+     * @param principalKey the principal key, see {@link PrincipalKeyProvider#getPrincipalKey()}
+     */
+    public void invalidateRoleHolder(Object principalKey) {
+        if (roleHolderCache != null) {
+            roleHolderCache.remove(principalKey);
+        }
+        invalidateContextRoleHolder();
+    }
+
+    /**
+     * Removes all cached role holders, including role holder kept by {@link SecurityContext} of current invocation.
+     */
+    public void invalidateAllRoleHolders() {
+        if (roleHolderCache != null) {
+            roleHolderCache.clear();
+        }
+        invalidateContextRoleHolder();
+    }
+
+    private void invalidateContextRoleHolder() {
+        SecurityContext context = SecurityContext.current();
+        if (context != null) {
+            context.invalidateRoleHolder();
+        }
+
+        Request request = Request.current();
+        if (request != null) {
+            request.args.remove(CACHE_PER_REQUEST);
+        }
+    }
+
+    /**
+     * Gets the {@link AccessHandler} of {@link SecurityHandler}, wrapped with {@link CachingAccessHandler} if caching
+     * of access decisions is enabled and {@link SecurityHandler} implements {@link PrincipalKeyProvider}.
+     * Decisions are kept while {@link SecurityHandler} returns access handlers of the same class, even if it returns
+     * new instance on each call.
+     *
+     * @return the access handler
+     */
+    private AccessHandler getAccessHandler() {
+        AccessHandler accessHandler = securityHandler.getAccessHandler();
+        SecurityConfig config = SecurityConfig.get();
+
+        if (!config.isAclCache() || !(securityHandler instanceof PrincipalKeyProvider)
+                || accessHandler instanceof CachingAccessHandler) {
+            return accessHandler;
+        }
+
+        CachingAccessHandler caching = cachingAccessHandler;
+        if (caching == null || caching.getDelegate().getClass() != accessHandler.getClass()) {
+            caching = new CachingAccessHandler(accessHandler, (PrincipalKeyProvider) securityHandler,
+                    config.getAclCacheSize(), config.getAclCacheTtl(), TimeUnit.SECONDS);
+            cachingAccessHandler = caching;
+        } else if (caching.getDelegate() != accessHandler) {
+            caching = caching.withDelegate(accessHandler);
+            cachingAccessHandler = caching;
+        }
+
+        return caching;
+    }
+
+    /**
+     * Gets the access handler caching decisions, either configured with {@link SecurityConfig#ACL_CACHE_KEY} or
+     * returned by {@link SecurityHandler}.
+     *
+     * @return the caching access handler or null if decisions are not cached
+     */
+    private CachingAccessHandler getCachingAccessHandler() {
+        AccessHandler accessHandler = getAccessHandler();
+
+        return accessHandler instanceof CachingAccessHandler ? (CachingAccessHandler) accessHandler : null;
+    }
+
+    /**
+     * Removes cached access decisions of all users about given object, e.g. after its ACL was changed.
+     *
+     * @param contextObject the context object
+     */
+    public void invalidateAccessDecisions(AclManaged contextObject) {
+        CachingAccessHandler caching = getCachingAccessHandler();
+        if (caching != null) {
+            caching.invalidate(contextObject);
+        }
+    }
+
+    /**
+     * Removes cached access decisions of given user.
+     *
+     * @param principalKey the principal key, see {@link PrincipalKeyProvider#getPrincipalKey()}
+     */
+    public void invalidateAccessDecisionsOfPrincipal(Object principalKey) {
+        CachingAccessHandler caching = getCachingAccessHandler();
+        if (caching != null) {
+            caching.invalidatePrincipal(principalKey);
+        }
+    }
+
+    /**
+     * Removes cached access decisions about all objects of given type.
+     *
+     * @param type the type
+     */
+    public void invalidateAccessDecisionsOfType(Class<? extends AclManaged> type) {
+        CachingAccessHandler caching = getCachingAccessHandler();
+        if (caching != null) {
+            caching.invalidateType(type);
+        }
+    }
+
+    /**
+     * Removes all cached access decisions.
+     */
+    public void invalidateAllAccessDecisions() {
+        CachingAccessHandler caching = getCachingAccessHandler();
+        if (caching != null) {
+            caching.invalidateAll();
+        }
+    }
+
+    /**
+     * Execute access check using {@link AccessHandler} on argument of planned method with single parameter annotated
+     * with {@link Access} annotation.
+     *
+     * @param roleHolder the role holder
+     * @param plan the plan
+     * @param accessArgument the value of the {@link Access} parameter
+     */
+    public void executeAccessCheck(RoleHolder roleHolder, SecurityPlan plan, Object accessArgument) {
+        SecurityPlan.AccessParameter parameter = plan.getAccessParameters()[0];
+
+        checkAccessParameter(roleHolder, plan, parameter, accessArgument, parameter.getAccessMask(),
+                parameter.getAccessTypes());
+    }
+
+    /**
+     * Execute access check using {@link AccessHandler} on arguments of planned method with two parameters annotated
+     * with {@link Access} annotation. Access to the same object is checked once for access types of both parameters.
+     * Different objects are checked in parallel if {@link SecurityConfig#PARALLEL_ACCESS_CHECKS_KEY} is enabled.
+     *
+     * @param roleHolder the role holder
+     * @param plan the plan
+     * @param accessArgument0 the value of the first {@link Access} parameter
+     * @param accessArgument1 the value of the second {@link Access} parameter
+     */
+    public void executeAccessCheck(RoleHolder roleHolder, SecurityPlan plan, Object accessArgument0, Object accessArgument1) {
+        SecurityPlan.AccessParameter parameter0 = plan.getAccessParameters()[0];
+        SecurityPlan.AccessParameter parameter1 = plan.getAccessParameters()[1];
+
+        if (isSameTarget(parameter0, accessArgument0, parameter1, accessArgument1)) {
+            checkAccessParameter(roleHolder, plan, parameter0, accessArgument0,
+                    parameter0.getAccessMask() | parameter1.getAccessMask(),
+                    union(parameter0.getAccessTypes(), parameter1.getAccessTypes()));
+        } else if (accessArgument0 != null && accessArgument1 != null && SecurityConfig.get().isParallelAccessChecks()
+                && AccessCheckExecutor.isAvailable()) {
+            executeAccessChecksInParallel(roleHolder, plan, new Object[] {accessArgument0, accessArgument1},
+                    new int[] {0, 1}, new int[] {parameter0.getAccessMask(), parameter1.getAccessMask()},
+                    new AccessType[][] {parameter0.getAccessTypes(), parameter1.getAccessTypes()}, 2);
+        } else if (checkAccessParameter(roleHolder, plan, parameter0, accessArgument0, parameter0.getAccessMask(),
+                parameter0.getAccessTypes())) {
+            checkAccessParameter(roleHolder, plan, parameter1, accessArgument1, parameter1.getAccessMask(),
+                    parameter1.getAccessTypes());
+        }
+    }
+
+    /**
+     * Execute access check using {@link AccessHandler} on arguments of planned method which are annotated with
+     * {@link Access} annotation. Access to the same object passed to adjacent parameters is checked once for access
+     * types of all of them, so the first denied parameter is the same as if each parameter was checked.
+     *
+     * @param roleHolder the role holder
+     * @param plan the plan
+     * @param accessArguments the values of {@link Access} parameters in order of {@link SecurityPlan#getAccessParameters()}
      */
-    private void executeAccessCheck(RoleHolder roleHolder, Method method, Object... args) {
-        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
-        for (int i = 0; i < parameterAnnotations.length; i++) {
-            Object contextObject = args[i];
-
-            if (contextObject != null) {
-                for (int j = 0; j < parameterAnnotations[i].length; j++) {
-                    Annotation annotation = parameterAnnotations[i][j];
-                    if (annotation instanceof Access) {
-                        Access access = (Access) annotation;
-                        contextObject = toAclManaged(contextObject, access.type());
-                        AccessResult accessResult = securityHandler.getAccessHandler().checkAccess(roleHolder,
-                                (AclManaged) contextObject, access.value());
-
-                        if (accessResult == AccessResult.DENIED) {
-                            securityHandler.onAccessFailure(method, (AclManaged)contextObject);
-														return;
+    public void executeAccessCheck(RoleHolder roleHolder, SecurityPlan plan, Object[] accessArguments) {
+        SecurityPlan.AccessParameter[] parameters = plan.getAccessParameters();
+        int[] indexes = new int[accessArguments.length];
+        int[] accessMasks = new int[accessArguments.length];
+        AccessType[][] accessTypes = new AccessType[accessArguments.length][];
+        int count = 0;
+
+        for (int i = 0; i < accessArguments.length; i++) {
+            if (accessArguments[i] == null) {
+                continue;
+            }
+
+            int first = i;
+            int accessMask = parameters[i].getAccessMask();
+            AccessType[] types = parameters[i].getAccessTypes();
+            while (i + 1 < accessArguments.length
+                    && isSameTarget(parameters[first], accessArguments[first], parameters[i + 1], accessArguments[i + 1])) {
+                i++;
+                accessMask |= parameters[i].getAccessMask();
+                types = union(types, parameters[i].getAccessTypes());
+            }
+
+            indexes[count] = first;
+            accessMasks[count] = accessMask;
+            accessTypes[count++] = types;
+        }
+
+        if (count > 1 && SecurityConfig.get().isParallelAccessChecks() && AccessCheckExecutor.isAvailable()) {
+            executeAccessChecksInParallel(roleHolder, plan, accessArguments, indexes, accessMasks, accessTypes, count);
+            return;
+        }
+
+        for (int k = 0; k < count; k++) {
+            int i = indexes[k];
+            if (!checkAccessParameter(roleHolder, plan, parameters[i], accessArguments[i], accessMasks[k],
+                    accessTypes[k])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Execute access checks of different objects in parallel using {@link AccessCheckExecutor}. Checks of parameters
+     * after the first denied one are skipped if they did not start yet. Failure is reported for the first denied
+     * parameter in order of parameters, the same as by sequential checks. Checks that did not start within
+     * {@link SecurityConfig#PARALLEL_ACCESS_CHECKS_TIMEOUT_KEY} are cancelled and run on current thread, checks
+     * already running are awaited, so each object is checked once.
+     *
+     * @param roleHolder the role holder
+     * @param plan the plan
+     * @param accessArguments the values of {@link Access} parameters
+     * @param indexes the indexes of checked parameters in order of parameters
+     * @param accessMasks the access masks of checked parameters
+     * @param accessTypes the access types of checked parameters
+     * @param count the number of checked parameters
+     */
+    private void executeAccessChecksInParallel(final RoleHolder roleHolder, SecurityPlan plan,
+            final Object[] accessArguments, final int[] indexes, final int[] accessMasks,
+            final AccessType[][] accessTypes, int count) {
+        final SecurityPlan.AccessParameter[] parameters = plan.getAccessParameters();
+        final AclManaged[][] denied = new AclManaged[count][];
+        final Throwable[] failures = new Throwable[count];
+        final AtomicInteger firstDenied = new AtomicInteger(count);
+        final AtomicIntegerArray started = new AtomicIntegerArray(count);
+        final BlockingQueue<Integer> completed = new LinkedBlockingQueue<Integer>();
+        Future<?>[] futures = new Future<?>[count];
+        long start = SecurityMetrics.start();
+
+        for (int k = 0; k < count; k++) {
+            final int position = k;
+            futures[k] = AccessCheckExecutor.submit(new Runnable() {
+                public void run() {
+                    try {
+                        if (position < firstDenied.get() && started.compareAndSet(position, 0, 1)) {
+                            int i = indexes[position];
+                            denied[position] = findDenied(roleHolder, parameters[i], accessArguments[i],
+                                    accessMasks[position], accessTypes[position]);
+                        }
+                    } catch (Throwable e) {
+                        failures[position] = e;
+                    } finally {
+                        completed.add(position);
+                    }
+                }
+            });
+        }
+
+        boolean[] done = new boolean[count];
+        AclManaged[] deniedObjects = null;
+        int first = count;
+        long timeout = SecurityConfig.get().getParallelAccessCheckTimeout();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        boolean timedOut = false;
+        while (hasPending(done, first)) {
+            Integer position;
+            try {
+                position = timedOut ? completed.take()
+                        : completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                firstDenied.set(0);
+                Thread.currentThread().interrupt();
+                throw new UnexpectedException(e);
+            }
+
+            if (position == null) {
+                timedOut = true;
+                Logger.warn("Parallel access checks of %s did not complete in %d ms, checking those not started "
+                        + "sequentially", plan.getMethod(), timeout);
+                for (int k = 0; k < first; k++) {
+                    if (!done[k] && started.compareAndSet(k, 0, 1)) {
+                        futures[k].cancel(false);
+                        done[k] = true;
+                        int i = indexes[k];
+                        AclManaged[] deniedOfParameter = findDenied(roleHolder, parameters[i], accessArguments[i],
+                                accessMasks[k], accessTypes[k]);
+                        if (deniedOfParameter != null) {
+                            first = k;
+                            firstDenied.set(k);
+                            deniedObjects = deniedOfParameter;
                         }
                     }
                 }
+                continue;
+            }
+
+            done[position] = true;
+            if (position >= first) {
+                continue;
             }
+
+            if (failures[position] != null) {
+                firstDenied.set(0);
+                throwUnchecked(failures[position]);
+            }
+            if (denied[position] != null) {
+                first = position;
+                firstDenied.set(position);
+                deniedObjects = denied[position];
+            }
+        }
+
+        plan.getMetrics().recordAccessCheck(start);
+        if (deniedObjects != null) {
+            reportDenied(plan, deniedObjects);
+            securityHandler.onAccessFailure(plan.getMethod(), deniedObjects);
+        }
+    }
+
+    /**
+     * Checks if a check of parameter before the first denied one is not done yet.
+     */
+    private static boolean hasPending(boolean[] done, int first) {
+        for (int k = 0; k < first; k++) {
+            if (!done[k]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void throwUnchecked(Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new UnexpectedException(e);
+    }
+
+    /**
+     * Gets access types declared by both parameters, each type once in order of declaration.
+     *
+     * @param accessTypes0 the access types of the first parameter
+     * @param accessTypes1 the access types of the second parameter
+     * @return the access types
+     */
+    private static AccessType[] union(AccessType[] accessTypes0, AccessType[] accessTypes1) {
+        List<AccessType> union = new ArrayList<AccessType>(Arrays.asList(accessTypes0));
+        for (AccessType accessType : accessTypes1) {
+            if (!union.contains(accessType)) {
+                union.add(accessType);
+            }
+        }
+
+        return union.size() == accessTypes0.length ? accessTypes0 : union.toArray(new AccessType[union.size()]);
+    }
+
+    /**
+     * Checks if access to both arguments is checked on the same object: the same AclManaged instance or equal ids
+     * converted to the same type.
+     *
+     * @return true, if checks of both arguments can be merged
+     */
+    private static boolean isSameTarget(SecurityPlan.AccessParameter parameter0, Object accessArgument0,
+            SecurityPlan.AccessParameter parameter1, Object accessArgument1) {
+        if (accessArgument0 == null || accessArgument1 == null || parameter0.isMultiple() || parameter1.isMultiple()) {
+            return false;
+        }
+        if (accessArgument0 instanceof AclManaged) {
+            return accessArgument0 == accessArgument1;
+        }
+
+        return !(accessArgument1 instanceof AclManaged) && parameter0.getType() == parameter1.getType()
+                && accessArgument0.equals(accessArgument1);
+    }
+
+    /**
+     * Execute access check using {@link AccessHandler} on given argument of planned method which is annotated with {@link Access} annotation.
+     * 
+     * @param plan the plan
+     * @param parameter the parameter
+     * @param contextObject the argument
+     * @param accessMask the mask of access types to check, may include access types of other parameters with the same argument
+     * @param accessTypes the access types of the mask as declared by parameters
+     * @return false, if access failure was reported
+     */
+    private boolean checkAccessParameter(RoleHolder roleHolder, SecurityPlan plan, SecurityPlan.AccessParameter parameter,
+            Object contextObject, int accessMask, AccessType[] accessTypes) {
+        long start = SecurityMetrics.start();
+        AclManaged[] denied = findDenied(roleHolder, parameter, contextObject, accessMask, accessTypes);
+        plan.getMetrics().recordAccessCheck(start);
+
+        if (denied != null) {
+            reportDenied(plan, denied);
+            securityHandler.onAccessFailure(plan.getMethod(), denied);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks access to given argument of planned method which is annotated with {@link Access} annotation.
+     *
+     * @param parameter the parameter
+     * @param contextObject the argument
+     * @param accessMask the mask of access types to check
+     * @param accessTypes the access types of the mask as declared by parameters
+     * @return the denied objects or null if access is allowed
+     */
+    private AclManaged[] findDenied(RoleHolder roleHolder, SecurityPlan.AccessParameter parameter, Object contextObject,
+            int accessMask, AccessType[] accessTypes) {
+        if (contextObject == null) {
+            return null;
+        }
+        if (parameter.isMultiple()) {
+            return findDeniedElements(roleHolder, parameter, contextObject);
+        }
+
+        AclManaged aclManaged = toAclManaged(contextObject, parameter.getType());
+        AccessResult accessResult = checkAccess(roleHolder, aclManaged, accessMask, accessTypes);
+
+        if (accessResult == AccessResult.DENIED || accessResult == AccessResult.NOT_SPECIFIED) {
+            return new AclManaged[] {aclManaged};
+        }
+        return null;
+    }
+
+    /**
+     * Checks access to each element of given {@link Collection} or array argument of planned method. Elements are
+     * converted with a single bulk {@link BatchAccessHandler#toAclManaged(Collection, Class)} call and checked with
+     * a single batch check if {@link AccessHandler} supports it, so all denied elements are reported at once.
+     *
+     * @param parameter the parameter
+     * @param contextObjects the collection or array argument
+     * @return the denied elements or null if access to all elements is allowed
+     */
+    private AclManaged[] findDeniedElements(RoleHolder roleHolder, SecurityPlan.AccessParameter parameter,
+            Object contextObjects) {
+        Collection<?> elements = contextObjects instanceof Collection
+                ? (Collection<?>) contextObjects : Arrays.asList((Object[]) contextObjects);
+        if (elements.isEmpty()) {
+            return null;
+        }
+
+        AccessHandler accessHandler = getAccessHandler();
+        List<AclManaged> aclManaged = toAclManaged(accessHandler, elements, parameter.getType());
+
+        SecurityListener[] listeners = this.listeners;
+        long start = startTimer(listeners);
+        BitSet allowed = accessHandler instanceof BatchAccessHandler
+                ? ((BatchAccessHandler) accessHandler).checkAccess(roleHolder, aclManaged, parameter.getAccessTypes())
+                : AbstractAccessHandler.checkEach(accessHandler, roleHolder, aclManaged, parameter.getAccessTypes());
+        SecurityMetrics.ACCESS_CHECK.recordSince(start);
+        if (listeners.length > 0) {
+            fireAccessDecisions(listeners, roleHolder, aclManaged, parameter.getAccessMask(), allowed,
+                    System.nanoTime() - start);
+        }
+
+        int deniedCount = aclManaged.size() - allowed.cardinality();
+        if (deniedCount == 0) {
+            return null;
+        }
+
+        AclManaged[] denied = new AclManaged[deniedCount];
+        for (int i = allowed.nextClearBit(0), j = 0; j < deniedCount; i = allowed.nextClearBit(i + 1), j++) {
+            denied[j] = aclManaged.get(i);
+        }
+        return denied;
+    }
+
+    /**
+     * Checks access using mask if {@link AccessHandler} implements {@link MaskAccessHandler}.
+     *
+     * @param roleHolder the role holder
+     * @param contextObject the context object
+     * @param accessMask the access mask
+     * @param accessTypes the access types of the mask or null to use shared array of the mask
+     * @return the access result
+     */
+    private AccessResult checkAccess(RoleHolder roleHolder, AclManaged contextObject, int accessMask,
+            AccessType[] accessTypes) {
+        AccessHandler accessHandler = getAccessHandler();
+
+        SecurityListener[] listeners = this.listeners;
+        long start = startTimer(listeners);
+        AccessResult accessResult = accessHandler instanceof MaskAccessHandler
+                ? ((MaskAccessHandler) accessHandler).checkAccess(roleHolder, contextObject, accessMask)
+                : accessHandler.checkAccess(roleHolder, contextObject,
+                        accessTypes != null ? accessTypes : AccessType.fromMask(accessMask));
+        recordAccessDecision(listeners, start, roleHolder, contextObject, accessMask, accessResult);
+
+        return accessResult;
+    }
+
+    /**
+     * Records access check started at given time in metrics and reports its decision to listeners.
+     */
+    private static void recordAccessDecision(SecurityListener[] listeners, long start, RoleHolder roleHolder,
+            AclManaged contextObject, int accessMask, AccessResult accessResult) {
+        SecurityMetrics.ACCESS_CHECK.recordSince(start);
+        if (listeners.length > 0) {
+            fireAccessDecision(listeners, roleHolder, contextObject, accessMask, accessResult,
+                    System.nanoTime() - start);
         }
     }
 
     private AclManaged toAclManaged(Object contextObject, Class<? extends AclManaged> type) {
         if (!(contextObject instanceof AclManaged)) {
-            contextObject = securityHandler.getAccessHandler().toAclManaged(contextObject, type);
+            long start = SecurityMetrics.start();
+            contextObject = getAccessHandler().toAclManaged(contextObject, type);
+            SecurityMetrics.TO_ACL_MANAGED.recordSince(start);
         }
 
         return (AclManaged) contextObject;
     }
 
     /**
-     * Checks whether list of roles contains role with given requiredRoleName.
+     * Converts context objects to AclManaged objects. Objects which are not AclManaged already are converted with
+     * a single bulk call if {@link AccessHandler} implements {@link BatchAccessHandler}.
      *
-     * @param roles the roles
-     * @param requiredRoleName the required role name
-     * @return true, if successful
+     * @param accessHandler the access handler
+     * @param contextObjects the context objects
+     * @param type the desired type of AclManaged
+     * @return the AclManaged objects in order of context objects
      */
-    private boolean containsRoleWithName(List<? extends Role> roles, String requiredRoleName) {
-        boolean hasRequiredRole = false;
+    private List<AclManaged> toAclManaged(AccessHandler accessHandler, Collection<?> contextObjects,
+            Class<? extends AclManaged> type) {
+        List<AclManaged> aclManaged = new ArrayList<AclManaged>(contextObjects.size());
+        List<Object> toConvert = null;
 
-        for (Role role : roles) {
-            if (role.getRoleName().equals(requiredRoleName)) {
-                hasRequiredRole = true;
-                break;
+        for (Object contextObject : contextObjects) {
+            if (contextObject instanceof AclManaged) {
+                aclManaged.add((AclManaged) contextObject);
+            } else {
+                if (toConvert == null) {
+                    toConvert = new ArrayList<Object>();
+                }
+                toConvert.add(contextObject);
+                aclManaged.add(null);
+            }
+        }
+
+        if (toConvert != null) {
+            long start = SecurityMetrics.start();
+            List<AclManaged> converted = accessHandler instanceof BatchAccessHandler
+                    ? ((BatchAccessHandler) accessHandler).toAclManaged(toConvert, type)
+                    : AbstractAccessHandler.toEach(accessHandler, toConvert, type);
+            SecurityMetrics.TO_ACL_MANAGED.recordSince(start);
+
+            int j = 0;
+            for (int i = 0; i < aclManaged.size(); i++) {
+                if (aclManaged.get(i) == null) {
+                    aclManaged.set(i, converted.get(j++));
+                }
             }
         }
 
-        return hasRequiredRole;
+        return aclManaged;
+    }
+
+    /**
+     * Gets start time of operation measured for metrics or listeners.
+     *
+     * @param listeners the registered listeners
+     * @return the current time in nanoseconds or 0 if the operation is not measured
+     */
+    private static long startTimer(SecurityListener[] listeners) {
+        return listeners.length > 0 ? System.nanoTime() : SecurityMetrics.start();
     }
 
     /**
-     * Checks if there is logged user ({@link RoleHolder}) if method or class is annotated with {@link AnyRole}
+     * Records denied invocation of planned method in metrics and reports it to listeners.
      *
-     * @param method the method
+     * @param plan the plan
+     * @param deniedObjects the denied objects, empty if a role or resource check failed
      */
-    private void executeAnyRoleCheck(RoleHolder roleHolder, Method method) {
-        AnyRole anyRole = getAnnotationFromMethodOrClass(method, AnyRole.class);
+    private void reportDenied(SecurityPlan plan, AclManaged[] deniedObjects) {
+        plan.getMetrics().onDenied();
 
-        if (anyRole != null && roleHolder == null) {
-            securityHandler.onAccessFailure(method);
+        SecurityListener[] listeners = this.listeners;
+        if (listeners.length > 0) {
+            long time = System.nanoTime();
+            for (SecurityListener listener : listeners) {
+                try {
+                    listener.onAccessFailure(plan, deniedObjects, time);
+                } catch (RuntimeException e) {
+                    logListenerFailure(listener, e);
+                }
+            }
         }
     }
 
+    private static void fireCheckStart(SecurityListener[] listeners, SecurityPlan plan, long startTime) {
+        for (SecurityListener listener : listeners) {
+            try {
+                listener.onCheckStart(plan, startTime);
+            } catch (RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    private static void fireRoleHolderResolved(SecurityListener[] listeners, RoleHolder roleHolder, long duration) {
+        for (SecurityListener listener : listeners) {
+            try {
+                listener.onRoleHolderResolved(roleHolder, duration);
+            } catch (RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    private static void fireAccessDecision(SecurityListener[] listeners, RoleHolder roleHolder,
+            AclManaged contextObject, int accessMask, AccessResult result, long duration) {
+        for (SecurityListener listener : listeners) {
+            try {
+                listener.onAccessDecision(roleHolder, contextObject, accessMask, result, duration);
+            } catch (RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    private static void fireAccessDecisions(SecurityListener[] listeners, RoleHolder roleHolder,
+            Collection<? extends AclManaged> contextObjects, int accessMask, BitSet allowed, long duration) {
+        int i = 0;
+        for (AclManaged contextObject : contextObjects) {
+            fireAccessDecision(listeners, roleHolder, contextObject, accessMask,
+                    allowed.get(i++) ? AccessResult.ALLOWED : AccessResult.DENIED, duration);
+        }
+    }
+
+    private static void logListenerFailure(SecurityListener listener, RuntimeException e) {
+        Logger.error(e, "SecurityListener %s failed", listener.getClass().getName());
+    }
+
     /**
-     * Checks if the method is annotated with {@link Unsecured}.
-     *
-     * @param method the method
-     * @return true, if is unsecured
+     * Role holder cached across requests together with its materialised role mask.
      */
-    private boolean isUnsecured(Method method) {
-        Unsecured unsecured = method.getAnnotation(Unsecured.class);
+    private static final class CachedRoleHolder {
+
+        private final RoleHolder roleHolder;
 
-        return unsecured != null;
+        private final RoleMask roleMask;
+
+        CachedRoleHolder(RoleHolder roleHolder, RoleMask roleMask) {
+            this.roleHolder = roleHolder;
+            this.roleMask = roleMask;
+        }
     }
 
     /**
-     * Gets the annotation from method or class if the annotation is not present on method.
-     *
-     * @param <T> the generic type
-     * @param method the method
-     * @param annotationClass the annotation class
-     * @return the annotation from method or class or null if there is no such annotation on method nor class
+     * Key of restricted resource decision memoised in {@link SecurityContext}: the role holder (by identity) and the
+     * resources.
      */
-    private <T extends Annotation> T getAnnotationFromMethodOrClass(Method method, Class<T> annotationClass) {
-        T annotation = method.getAnnotation(annotationClass);
+    private static final class ResourceKey {
+
+        private final RoleHolder roleHolder;
+
+        private final List<String> resourceNames;
+
+        private final Map<String, Object> resourceParameters;
 
-        if (annotation == null) {
-            annotation = method.getDeclaringClass().getAnnotation(annotationClass);
+        ResourceKey(RoleHolder roleHolder, List<String> resourceNames, Map<String, Object> resourceParameters) {
+            this.roleHolder = roleHolder;
+            this.resourceNames = resourceNames;
+            this.resourceParameters = resourceParameters;
         }
 
-        return annotation;
+        /**
+         * Copies the key, so it is not changed when lists of caller are modified.
+         */
+        ResourceKey copy() {
+            return new ResourceKey(roleHolder, new ArrayList<String>(resourceNames), resourceParameters != null
+                    ? new HashMap<String, Object>(resourceParameters) : null);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(roleHolder) + resourceNames.hashCode())
+                    + (resourceParameters != null ? resourceParameters.hashCode() : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ResourceKey)) {
+                return false;
+            }
+
+            ResourceKey other = (ResourceKey) obj;
+            return roleHolder == other.roleHolder && resourceNames.equals(other.resourceNames)
+                    && (resourceParameters == null ? other.resourceParameters == null
+                            : resourceParameters.equals(other.resourceParameters));
+        }
     }
 
+    /**
+     * Key of restricted resource decision cached across requests by role set of user.
+     */
+    private static final class ResourceDecisionKey {
+
+        private final boolean roleHolderPresent;
+
+        private final RoleMask roles;
+
+        private final List<String> resourceNames;
+
+        ResourceDecisionKey(boolean roleHolderPresent, RoleMask roles, List<String> resourceNames) {
+            this.roleHolderPresent = roleHolderPresent;
+            this.roles = roles;
+            this.resourceNames = resourceNames;
+        }
+
+        /**
+         * Copies the key, so it is not changed when list of caller is modified.
+         */
+        ResourceDecisionKey copy() {
+            return new ResourceDecisionKey(roleHolderPresent, roles, new ArrayList<String>(resourceNames));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * roles.hashCode() + resourceNames.hashCode()) + (roleHolderPresent ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ResourceDecisionKey)) {
+                return false;
+            }
+
+            ResourceDecisionKey other = (ResourceDecisionKey) obj;
+            return roleHolderPresent == other.roleHolderPresent && roles.equals(other.roles)
+                    && resourceNames.equals(other.resourceNames);
+        }
+    }
 }
@@ -0,0 +1,392 @@
+package security;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import play.Play;
+import play.exceptions.ConfigurationException;
+import play.libs.Time;
+import security.role.RoleIndex;
+
+/**
+ * Immutable snapshot of <code>security.*</code> settings parsed once from application configuration. The snapshot is
+ * replaced by {@link #reload(Properties)} when configuration is read, so checks never look up
+ * {@link Play#configuration} on the hot path.
+ */
+public final class SecurityConfig {
+
+    public static final String ROLE_HOLDER_CACHE_KEY = "security.role-holder-cache";
+
+    public static final String ROLE_HOLDER_CACHE_SIZE_KEY = "security.role-holder-cache.size";
+
+    public static final String ROLE_HOLDER_CACHE_TTL_KEY = "security.role-holder-cache.ttl";
+
+    public static final String ACL_CACHE_KEY = "security.acl-cache";
+
+    public static final String ACL_CACHE_SIZE_KEY = "security.acl-cache.size";
+
+    public static final String ACL_CACHE_TTL_KEY = "security.acl-cache.ttl";
+
+    public static final String RESOURCE_CACHE_KEY = "security.resource-cache";
+
+    public static final String RESOURCE_CACHE_SIZE_KEY = "security.resource-cache.size";
+
+    public static final String RESOURCE_CACHE_TTL_KEY = "security.resource-cache.ttl";
+
+    public static final String PARALLEL_ACCESS_CHECKS_KEY = "security.parallel-access-checks";
+
+    public static final String PARALLEL_ACCESS_CHECKS_THREADS_KEY = "security.parallel-access-checks.threads";
+
+    public static final String PARALLEL_ACCESS_CHECKS_TIMEOUT_KEY = "security.parallel-access-checks.timeout";
+
+    public static final String FRAGMENT_CACHE_SIZE_KEY = "security.fragment-cache.size";
+
+    public static final String FRAGMENT_CACHE_TTL_KEY = "security.fragment-cache.ttl";
+
+    public static final String WARMUP_KEY = "security.warmup";
+
+    public static final String ROLES_KEY = "security.roles";
+
+    public static final String METRICS_KEY = "security.metrics";
+
+    public static final String LISTENERS_KEY = "security.listeners";
+
+    private static volatile SecurityConfig current;
+
+    private final String handlerClassName;
+
+    private final boolean cacheUserPerRequest;
+
+    private final boolean roleHolderCache;
+
+    private final int roleHolderCacheSize;
+
+    private final int roleHolderCacheTtl;
+
+    private final boolean aclCache;
+
+    private final int aclCacheSize;
+
+    private final int aclCacheTtl;
+
+    private final boolean resourceCache;
+
+    private final int resourceCacheSize;
+
+    private final int resourceCacheTtl;
+
+    private final boolean parallelAccessChecks;
+
+    private final int parallelAccessCheckThreads;
+
+    private final int parallelAccessCheckTimeout;
+
+    private final int fragmentCacheSize;
+
+    private final int fragmentCacheTtl;
+
+    private final boolean warmup;
+
+    private final Set<String> roles;
+
+    private final boolean metrics;
+
+    private final Set<String> listenerClassNames;
+
+    private SecurityConfig(Properties configuration) {
+        this.handlerClassName = trimToNull(configuration.getProperty(Security.SECURITY_HANDLER_KEY));
+        this.cacheUserPerRequest = getBoolean(configuration, Security.CACHE_USER_KEY, false);
+        this.roleHolderCache = getBoolean(configuration, ROLE_HOLDER_CACHE_KEY, false);
+        this.roleHolderCacheSize = getInt(configuration, ROLE_HOLDER_CACHE_SIZE_KEY, 1000);
+        this.roleHolderCacheTtl = getDuration(configuration, ROLE_HOLDER_CACHE_TTL_KEY, "10mn");
+        this.aclCache = getBoolean(configuration, ACL_CACHE_KEY, false);
+        this.aclCacheSize = getInt(configuration, ACL_CACHE_SIZE_KEY, 10000);
+        this.aclCacheTtl = getDuration(configuration, ACL_CACHE_TTL_KEY, "10s");
+        this.resourceCache = getBoolean(configuration, RESOURCE_CACHE_KEY, false);
+        this.resourceCacheSize = getInt(configuration, RESOURCE_CACHE_SIZE_KEY, 1000);
+        this.resourceCacheTtl = getDuration(configuration, RESOURCE_CACHE_TTL_KEY, "10mn");
+        this.parallelAccessChecks = getBoolean(configuration, PARALLEL_ACCESS_CHECKS_KEY, false);
+        int threads = getInt(configuration, PARALLEL_ACCESS_CHECKS_THREADS_KEY, 0);
+        this.parallelAccessCheckThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.parallelAccessCheckTimeout = getInt(configuration, PARALLEL_ACCESS_CHECKS_TIMEOUT_KEY, 1000);
+        this.fragmentCacheSize = getInt(configuration, FRAGMENT_CACHE_SIZE_KEY, 1000);
+        this.fragmentCacheTtl = getDuration(configuration, FRAGMENT_CACHE_TTL_KEY, "1h");
+        this.warmup = getBoolean(configuration, WARMUP_KEY, false);
+        this.roles = getSet(configuration, ROLES_KEY);
+        if (roles != null) {
+            for (String role : roles) {
+                RoleIndex.idOf(role);
+            }
+        }
+        this.metrics = getBoolean(configuration, METRICS_KEY, false);
+        Set<String> listeners = getSet(configuration, LISTENERS_KEY);
+        this.listenerClassNames = listeners != null ? listeners : Collections.<String>emptySet();
+    }
+
+    /**
+     * Gets the current configuration, parsing {@link Play#configuration} if it was not loaded yet.
+     *
+     * @return the security config
+     */
+    public static SecurityConfig get() {
+        SecurityConfig config = current;
+        if (config == null) {
+            config = reload(Play.configuration);
+        }
+
+        return config;
+    }
+
+    /**
+     * Parses given configuration and makes it current.
+     *
+     * @param configuration the configuration
+     * @return the new security config
+     */
+    public static SecurityConfig reload(Properties configuration) {
+        SecurityConfig config = new SecurityConfig(configuration != null ? configuration : new Properties());
+        current = config;
+
+        return config;
+    }
+
+    /**
+     * Gets the class name of {@link security.handler.SecurityHandler}, see {@link Security#SECURITY_HANDLER_KEY}.
+     *
+     * @return the handler class name or null if not defined
+     */
+    public String getHandlerClassName() {
+        return handlerClassName;
+    }
+
+    /**
+     * Checks if role holder is cached per request, see {@link Security#CACHE_USER_KEY}.
+     *
+     * @return true, if role holder is cached per request
+     */
+    public boolean isCacheUserPerRequest() {
+        return cacheUserPerRequest;
+    }
+
+    /**
+     * Checks if role holders are cached across requests by principal key, see {@link #ROLE_HOLDER_CACHE_KEY}.
+     *
+     * @return true, if role holders are cached across requests
+     */
+    public boolean isRoleHolderCache() {
+        return roleHolderCache;
+    }
+
+    /**
+     * Gets the maximum number of role holders cached across requests, see {@link #ROLE_HOLDER_CACHE_SIZE_KEY}.
+     *
+     * @return the cache size
+     */
+    public int getRoleHolderCacheSize() {
+        return roleHolderCacheSize;
+    }
+
+    /**
+     * Gets the time to live of role holders cached across requests, see {@link #ROLE_HOLDER_CACHE_TTL_KEY}.
+     *
+     * @return the time to live in seconds
+     */
+    public int getRoleHolderCacheTtl() {
+        return roleHolderCacheTtl;
+    }
+
+    /**
+     * Checks if access decisions are cached, see {@link #ACL_CACHE_KEY}.
+     *
+     * @return true, if access decisions are cached
+     */
+    public boolean isAclCache() {
+        return aclCache;
+    }
+
+    /**
+     * Gets the maximum number of cached access decisions, see {@link #ACL_CACHE_SIZE_KEY}.
+     *
+     * @return the cache size
+     */
+    public int getAclCacheSize() {
+        return aclCacheSize;
+    }
+
+    /**
+     * Gets the time to live of cached access decisions, see {@link #ACL_CACHE_TTL_KEY}.
+     *
+     * @return the time to live in seconds
+     */
+    public int getAclCacheTtl() {
+        return aclCacheTtl;
+    }
+
+    /**
+     * Checks if decisions about restricted resources are cached across requests by role set, see
+     * {@link #RESOURCE_CACHE_KEY}.
+     *
+     * @return true, if resource decisions are cached
+     */
+    public boolean isResourceCache() {
+        return resourceCache;
+    }
+
+    /**
+     * Gets the maximum number of cached resource decisions, see {@link #RESOURCE_CACHE_SIZE_KEY}.
+     *
+     * @return the cache size
+     */
+    public int getResourceCacheSize() {
+        return resourceCacheSize;
+    }
+
+    /**
+     * Gets the time to live of cached resource decisions, see {@link #RESOURCE_CACHE_TTL_KEY}.
+     *
+     * @return the time to live in seconds
+     */
+    public int getResourceCacheTtl() {
+        return resourceCacheTtl;
+    }
+
+    /**
+     * Checks if access checks of different {@link security.annotation.Access} parameters are evaluated in parallel, see
+     * {@link #PARALLEL_ACCESS_CHECKS_KEY}.
+     *
+     * @return true, if access checks are evaluated in parallel
+     */
+    public boolean isParallelAccessChecks() {
+        return parallelAccessChecks;
+    }
+
+    /**
+     * Gets the size of dedicated pool of parallel access checks, see {@link #PARALLEL_ACCESS_CHECKS_THREADS_KEY}.
+     *
+     * @return the number of threads, the number of processors by default
+     */
+    public int getParallelAccessCheckThreads() {
+        return parallelAccessCheckThreads;
+    }
+
+    /**
+     * Gets the maximum time to wait for parallel access checks before checks that did not start are run
+     * sequentially, see {@link #PARALLEL_ACCESS_CHECKS_TIMEOUT_KEY}.
+     *
+     * @return the timeout in milliseconds
+     */
+    public int getParallelAccessCheckTimeout() {
+        return parallelAccessCheckTimeout;
+    }
+
+    /**
+     * Gets the maximum number of template fragments cached by role set, see {@link #FRAGMENT_CACHE_SIZE_KEY}.
+     *
+     * @return the cache size
+     */
+    public int getFragmentCacheSize() {
+        return fragmentCacheSize;
+    }
+
+    /**
+     * Gets the time to live of template fragments cached by role set, see {@link #FRAGMENT_CACHE_TTL_KEY}.
+     *
+     * @return the time to live in seconds
+     */
+    public int getFragmentCacheTtl() {
+        return fragmentCacheTtl;
+    }
+
+    /**
+     * Checks if plans of all enhanced methods are resolved and validated when application starts, see
+     * {@link #WARMUP_KEY}.
+     *
+     * @return true, if security is warmed up on start
+     */
+    public boolean isWarmup() {
+        return warmup;
+    }
+
+    /**
+     * Gets the names of all roles known to application, see {@link #ROLES_KEY}.
+     *
+     * @return the unmodifiable set of role names or null if roles are not defined
+     */
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    /**
+     * Checks if counters and latencies of security checks are recorded, see {@link #METRICS_KEY}.
+     *
+     * @return true, if metrics are recorded
+     */
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the class names of {@link security.handler.SecurityListener}s, see {@link #LISTENERS_KEY}.
+     *
+     * @return the unmodifiable set of class names, empty if no listener is configured
+     */
+    public Set<String> getListenerClassNames() {
+        return listenerClassNames;
+    }
+
+    private static boolean getBoolean(Properties configuration, String key, boolean defaultValue) {
+        String value = trimToNull(configuration.getProperty(key));
+
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    private static int getInt(Properties configuration, String key, int defaultValue) {
+        String value = trimToNull(configuration.getProperty(key));
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ConfigurationException(String.format("%s must be a number: [%s]", key, value));
+        }
+    }
+
+    private static int getDuration(Properties configuration, String key, String defaultValue) {
+        String value = trimToNull(configuration.getProperty(key));
+
+        try {
+            return Time.parseDuration(value != null ? value : defaultValue);
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(String.format("%s must be a duration: [%s]", key, value));
+        }
+    }
+
+    private static Set<String> getSet(Properties configuration, String key) {
+        String value = trimToNull(configuration.getProperty(key));
+        if (value == null) {
+            return null;
+        }
+
+        Set<String> values = new LinkedHashSet<String>();
+        for (String item : value.split(",")) {
+            item = trimToNull(item);
+            if (item != null) {
+                values.add(item);
+            }
+        }
+        return Collections.unmodifiableSet(values);
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        value = value.trim();
+        return value.length() > 0 ? value : null;
+    }
+}
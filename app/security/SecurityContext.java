@@ -0,0 +1,276 @@
+package security;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import security.role.RoleHolder;
+import security.role.RoleMask;
+
+/**
+ * Security state of a single invocation kept in a thread local: the resolved {@link RoleHolder}, its {@link RoleMask}
+ * and results of checks done so far. The context is opened by {@link play.modules.security.SecurityPlugin} for every
+ * Play invocation (requests, jobs) and filled lazily by {@link Security}, so
+ * {@link security.handler.SecurityHandler#beforeRoleCheck()} is called once per invocation.
+ * <p/>
+ * The context can be propagated explicitly to other threads with {@link #wrap(Runnable)}, {@link #wrap(Callable)}
+ * or {@link SecurityJob}. Without context checks work as before, resolving role holder on every check.
+ */
+public final class SecurityContext {
+
+    private static final ThreadLocal<SecurityContext> current = new ThreadLocal<SecurityContext>();
+
+    private final SecurityContext parent;
+
+    private boolean roleCheckPrepared;
+
+    private volatile boolean roleHolderResolved;
+
+    private RoleHolder roleHolder;
+
+    private volatile RoleHolder currentRoleHolder;
+
+    private volatile MaterializedRoles materializedRoles;
+
+    private volatile ConcurrentMap<Object, Object> checkResults;
+
+    private SecurityContext(SecurityContext parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Gets the context bound to current thread.
+     *
+     * @return the context or null if there is none
+     */
+    public static SecurityContext current() {
+        return current.get();
+    }
+
+    /**
+     * Opens new empty context and binds it to current thread. Previous context is restored by {@link #close()}.
+     *
+     * @return the new context
+     */
+    public static SecurityContext open() {
+        SecurityContext context = new SecurityContext(current.get());
+        current.set(context);
+
+        return context;
+    }
+
+    /**
+     * Closes the context opened by {@link #open()} and restores the previous one.
+     */
+    public void close() {
+        if (current.get() == this) {
+            attach(parent);
+        }
+    }
+
+    /**
+     * Binds given context to current thread.
+     *
+     * @param context the context, null to unbind
+     * @return the previously bound context
+     */
+    public static SecurityContext attach(SecurityContext context) {
+        SecurityContext previous = current.get();
+        if (context != null) {
+            current.set(context);
+        } else {
+            current.remove();
+        }
+
+        return previous;
+    }
+
+    /**
+     * Wraps the task to run with context of current thread, e.g. when submitting secured work to an executor.
+     *
+     * @param task the task
+     * @return the wrapped task
+     */
+    public static Runnable wrap(final Runnable task) {
+        final SecurityContext context = current();
+
+        return new Runnable() {
+            public void run() {
+                SecurityContext previous = attach(context);
+                try {
+                    task.run();
+                } finally {
+                    attach(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps the task to run with context of current thread, e.g. when submitting secured work to an executor.
+     *
+     * @param <V> the result type
+     * @param task the task
+     * @return the wrapped task
+     */
+    public static <V> Callable<V> wrap(final Callable<V> task) {
+        final SecurityContext context = current();
+
+        return new Callable<V>() {
+            public V call() throws Exception {
+                SecurityContext previous = attach(context);
+                try {
+                    return task.call();
+                } finally {
+                    attach(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets the role holder of this context, resolving it with given security on first use. The role holder is kept
+     * for the life of the context, {@link SecurityConfig#isCacheUserPerRequest()} only decides if it is also shared
+     * with other invocations of the request. Missing role holder is not kept, so a user logged in by the invocation is
+     * seen by later checks.
+     *
+     * @param security the security
+     * @return the role holder
+     */
+    RoleHolder getRoleHolder(Security security) {
+        if (roleHolderResolved) {
+            return roleHolder;
+        }
+
+        RoleHolder resolved = resolveRoleHolder(security);
+        currentRoleHolder = resolved;
+        return resolved;
+    }
+
+    private RoleHolder resolveRoleHolder(Security security) {
+        synchronized (this) {
+            if (!roleHolderResolved) {
+                if (!roleCheckPrepared) {
+                    security.beforeRoleCheck();
+                    roleCheckPrepared = true;
+                }
+
+                RoleHolder resolved = security.lookupRoleHolder();
+                if (resolved == null) {
+                    return null;
+                }
+
+                roleHolder = resolved;
+                roleHolderResolved = true;
+            }
+
+            return roleHolder;
+        }
+    }
+
+    /**
+     * Forgets the role holder of this context, so it is resolved again on next check, e.g. after roles of user changed.
+     */
+    void invalidateRoleHolder() {
+        synchronized (this) {
+            roleHolderResolved = false;
+            roleHolder = null;
+            materializedRoles = null;
+        }
+    }
+
+    /**
+     * Checks if given role holder is the user of this context, i.e. the role holder last resolved by
+     * {@link Security#getRoleHolder()}. Other role holders may be checked explicitly, e.g. by
+     * {@link Security#executeAccessCheck(RoleHolder, SecurityPlan, Object)}.
+     *
+     * @param roleHolder the role holder
+     * @return true, if role holder is not null and is the user of this context
+     */
+    public boolean isCurrentRoleHolder(RoleHolder roleHolder) {
+        return roleHolder != null && roleHolder == currentRoleHolder;
+    }
+
+    /**
+     * Sets the role holder resolved as the user of this context.
+     *
+     * @param roleHolder the role holder
+     */
+    void setCurrentRoleHolder(RoleHolder roleHolder) {
+        currentRoleHolder = roleHolder;
+    }
+
+    /**
+     * Gets the role mask of given role holder, materialised once for the same role holder in this context.
+     *
+     * @param roleHolder the role holder
+     * @return the role mask
+     */
+    RoleMask getRoleMask(RoleHolder roleHolder) {
+        MaterializedRoles roles = materializedRoles;
+        if (roles == null || roles.roleHolder != roleHolder || !roles.roleMask.isCurrent()) {
+            roles = new MaterializedRoles(roleHolder, RoleMask.of(roleHolder));
+            materializedRoles = roles;
+        }
+
+        return roles.roleMask;
+    }
+
+    /**
+     * Sets the role mask of given role holder already materialised, e.g. when role holder was cached.
+     *
+     * @param roleHolder the role holder
+     * @param roleMask the role mask
+     */
+    void setRoleMask(RoleHolder roleHolder, RoleMask roleMask) {
+        materializedRoles = new MaterializedRoles(roleHolder, roleMask);
+    }
+
+    /**
+     * Gets the result of check memoised in this context.
+     *
+     * @param key the check key
+     * @return the result or null if the check was not memoised
+     */
+    public Object getCheckResult(Object key) {
+        ConcurrentMap<Object, Object> results = checkResults;
+
+        return results != null ? results.get(key) : null;
+    }
+
+    /**
+     * Memoises the result of check in this context.
+     *
+     * @param key the check key
+     * @param result the result, not null
+     */
+    public void putCheckResult(Object key, Object result) {
+        ConcurrentMap<Object, Object> results = checkResults;
+        if (results == null) {
+            synchronized (this) {
+                results = checkResults;
+                if (results == null) {
+                    results = new ConcurrentHashMap<Object, Object>();
+                    checkResults = results;
+                }
+            }
+        }
+
+        results.put(key, result);
+    }
+
+    /**
+     * Role mask of role holder materialised for the context.
+     */
+    private static final class MaterializedRoles {
+
+        private final RoleHolder roleHolder;
+
+        private final RoleMask roleMask;
+
+        MaterializedRoles(RoleHolder roleHolder, RoleMask roleMask) {
+            this.roleHolder = roleHolder;
+            this.roleMask = roleMask;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package security;
+
+import play.jobs.Job;
+
+/**
+ * Job running with {@link SecurityContext} of the invocation which created it, so secured services called by the job
+ * are checked against the same role holder without resolving it again.
+ *
+ * @param <V> the result type
+ */
+public abstract class SecurityJob<V> extends Job<V> {
+
+    private final SecurityContext context = SecurityContext.current();
+
+    private SecurityContext previous;
+
+    @Override
+    public void before() {
+        super.before();
+        previous = SecurityContext.attach(context);
+    }
+
+    @Override
+    public void _finally() {
+        SecurityContext.attach(previous);
+        previous = null;
+        super._finally();
+    }
+}
@@ -0,0 +1,491 @@
+package security;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Counters and latency histograms of security checks, see {@link SecurityConfig#METRICS_KEY}. Counters are striped by
+ * thread, so concurrent invocations rarely update the same memory. Nothing is recorded while metrics are disabled.
+ * <p/>
+ * Metrics are exposed by <code>SecurityPlugin</code> on Playframework status page.
+ */
+public final class SecurityMetrics {
+
+    /**
+     * Number of stripes of shared counters, initialized before the counters below.
+     */
+    static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Distance in longs between stripes of shared counters, so each stripe is in different cache line.
+     */
+    private static final int PADDING = 8;
+
+    /**
+     * Latency of resolving current {@link security.role.RoleHolder}.
+     */
+    public static final Histogram ROLE_HOLDER = new Histogram();
+
+    /**
+     * Latency of {@link security.handler.AccessHandler} access checks, single or batch.
+     */
+    public static final Histogram ACCESS_CHECK = new Histogram();
+
+    /**
+     * Latency of {@link security.handler.AccessHandler} conversions to {@link AclManaged}, single or bulk.
+     */
+    public static final Histogram TO_ACL_MANAGED = new Histogram();
+
+    /**
+     * Role holders cached per request, see {@link Security#CACHE_USER_KEY}.
+     */
+    public static final CacheCounter REQUEST_CACHE = new CacheCounter();
+
+    /**
+     * Role holders cached across requests, see {@link SecurityConfig#ROLE_HOLDER_CACHE_KEY}.
+     */
+    public static final CacheCounter ROLE_HOLDER_CACHE = new CacheCounter();
+
+    /**
+     * Cached access decisions, see {@link SecurityConfig#ACL_CACHE_KEY}.
+     */
+    public static final CacheCounter ACL_CACHE = new CacheCounter();
+
+    /**
+     * Cached decisions about restricted resources, see {@link SecurityConfig#RESOURCE_CACHE_KEY}.
+     */
+    public static final CacheCounter RESOURCE_CACHE = new CacheCounter();
+
+    private static final ConcurrentMap<Method, MethodMetrics> methods = new ConcurrentHashMap<Method, MethodMetrics>();
+
+    private SecurityMetrics() {
+    }
+
+    /**
+     * Checks if metrics are recorded.
+     *
+     * @return true, if metrics are enabled
+     */
+    public static boolean isEnabled() {
+        return SecurityConfig.get().isMetrics();
+    }
+
+    /**
+     * Gets start time of measured operation.
+     *
+     * @return the current time in nanoseconds or 0 if metrics are disabled
+     * @see Histogram#recordSince(long)
+     */
+    public static long start() {
+        return isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Gets metrics of secured method shared by all its plans.
+     *
+     * @param method the secured method
+     * @return the metrics
+     */
+    static MethodMetrics forMethod(Method method) {
+        MethodMetrics metrics = methods.get(method);
+        if (metrics == null) {
+            MethodMetrics created = new MethodMetrics(method);
+            metrics = methods.putIfAbsent(method, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Drops metrics of all methods, e.g. before application classes are reloaded.
+     */
+    public static void clearMethods() {
+        methods.clear();
+    }
+
+    /**
+     * Formats metrics for Playframework status page.
+     *
+     * @return the status or null if metrics are disabled
+     */
+    public static String getStatus() {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        StringWriter sw = new StringWriter();
+        PrintWriter out = new PrintWriter(sw);
+        out.println("Security:");
+        out.println("~~~~~~~~~");
+        out.println(String.format("%-20s %10s %10s %10s %10s", "Latency", "count", "mean (us)", "p50 (us)",
+                "p99 (us)"));
+        for (Map.Entry<String, Histogram> entry : histograms().entrySet()) {
+            Histogram histogram = entry.getValue();
+            out.println(String.format("%-20s %10d %10d %10d %10d", entry.getKey(), histogram.getCount(),
+                    histogram.getMean(), histogram.getPercentile(0.5), histogram.getPercentile(0.99)));
+        }
+        out.println();
+        out.println(String.format("%-20s %10s %10s %10s", "Cache", "hits", "misses", "hit rate"));
+        for (Map.Entry<String, CacheCounter> entry : caches().entrySet()) {
+            CacheCounter cache = entry.getValue();
+            out.println(String.format("%-20s %10d %10d %9d%%", entry.getKey(), cache.getHits(), cache.getMisses(),
+                    cache.getHitRate()));
+        }
+        out.println();
+        out.println(String.format("%-60s %10s %10s %10s %12s", "Method", "checks", "allowed", "denied",
+                "access (us)"));
+        for (MethodMetrics metrics : sortedMethods()) {
+            out.println(String.format("%-60s %10d %10d %10d %12d", metrics.getName(), metrics.getChecks(),
+                    metrics.getAllowed(), metrics.getDenied(), metrics.getAccessTime()));
+        }
+        out.flush();
+        return sw.toString();
+    }
+
+    /**
+     * Formats metrics for Playframework JSON status.
+     *
+     * @return the status or null if metrics are disabled
+     */
+    public static JsonObject getJsonStatus() {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        JsonObject latencies = new JsonObject();
+        for (Map.Entry<String, Histogram> entry : histograms().entrySet()) {
+            Histogram histogram = entry.getValue();
+            JsonObject json = new JsonObject();
+            json.addProperty("count", histogram.getCount());
+            json.addProperty("mean", histogram.getMean());
+            json.addProperty("p50", histogram.getPercentile(0.5));
+            json.addProperty("p99", histogram.getPercentile(0.99));
+            latencies.add(entry.getKey(), json);
+        }
+
+        JsonObject caches = new JsonObject();
+        for (Map.Entry<String, CacheCounter> entry : caches().entrySet()) {
+            JsonObject json = new JsonObject();
+            json.addProperty("hits", entry.getValue().getHits());
+            json.addProperty("misses", entry.getValue().getMisses());
+            caches.add(entry.getKey(), json);
+        }
+
+        JsonObject methods = new JsonObject();
+        for (MethodMetrics metrics : sortedMethods()) {
+            JsonObject json = new JsonObject();
+            json.addProperty("checks", metrics.getChecks());
+            json.addProperty("allowed", metrics.getAllowed());
+            json.addProperty("denied", metrics.getDenied());
+            json.addProperty("accessTime", metrics.getAccessTime());
+            methods.add(metrics.getName(), json);
+        }
+
+        JsonObject status = new JsonObject();
+        status.add("latencies", latencies);
+        status.add("caches", caches);
+        status.add("methods", methods);
+        return status;
+    }
+
+    private static Map<String, Histogram> histograms() {
+        Map<String, Histogram> histograms = new LinkedHashMap<String, Histogram>();
+        histograms.put("getRoleHolder", ROLE_HOLDER);
+        histograms.put("checkAccess", ACCESS_CHECK);
+        histograms.put("toAclManaged", TO_ACL_MANAGED);
+        return histograms;
+    }
+
+    private static Map<String, CacheCounter> caches() {
+        Map<String, CacheCounter> caches = new LinkedHashMap<String, CacheCounter>();
+        caches.put("request", REQUEST_CACHE);
+        caches.put("role-holder", ROLE_HOLDER_CACHE);
+        caches.put("acl", ACL_CACHE);
+        caches.put("resource", RESOURCE_CACHE);
+        return caches;
+    }
+
+    /**
+     * Gets metrics of methods which were checked, the most expensive access checks first.
+     */
+    private static List<MethodMetrics> sortedMethods() {
+        List<MethodMetrics> sorted = new ArrayList<MethodMetrics>();
+        for (MethodMetrics metrics : methods.values()) {
+            if (metrics.getChecks() > 0) {
+                sorted.add(metrics);
+            }
+        }
+        Collections.sort(sorted, new Comparator<MethodMetrics>() {
+            public int compare(MethodMetrics metrics0, MethodMetrics metrics1) {
+                long time0 = metrics0.getAccessTime();
+                long time1 = metrics1.getAccessTime();
+                return time0 < time1 ? 1 : (time0 > time1 ? -1 : metrics0.getName().compareTo(metrics1.getName()));
+            }
+        });
+        return sorted;
+    }
+
+    private static int stripes(int processors) {
+        int stripes = 1;
+        while (stripes < processors && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    private static int stripe() {
+        return (int) Thread.currentThread().getId() & (STRIPES - 1);
+    }
+
+    /**
+     * Counter striped by thread. The sum is not an atomic snapshot when counter is updated concurrently.
+     */
+    public static final class Counter {
+
+        private final AtomicLongArray cells;
+
+        private final int spacing;
+
+        /**
+         * Creates counter with stripes in different cache lines.
+         */
+        public Counter() {
+            this(PADDING);
+        }
+
+        Counter(int spacing) {
+            this.cells = new AtomicLongArray(STRIPES * spacing);
+            this.spacing = spacing;
+        }
+
+        public void increment() {
+            cells.incrementAndGet(stripe() * spacing);
+        }
+
+        public void add(long value) {
+            cells.addAndGet(stripe() * spacing, value);
+        }
+
+        public long sum() {
+            long sum = 0;
+            for (int i = 0; i < cells.length(); i += spacing) {
+                sum += cells.get(i);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Histogram of latencies with buckets of powers of two microseconds, striped by thread.
+     */
+    public static final class Histogram {
+
+        static final int BUCKETS = 24;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(STRIPES * BUCKETS);
+
+        private final Counter total = new Counter();
+
+        /**
+         * Records latency of operation started at given time, see {@link SecurityMetrics#start()}.
+         *
+         * @param start the start time in nanoseconds or 0 if operation was not measured
+         */
+        public void recordSince(long start) {
+            if (start != 0L && isEnabled()) {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Records latency.
+         *
+         * @param nanos the latency in nanoseconds
+         */
+        public void record(long nanos) {
+            long micros = Math.max(nanos, 0L) / 1000L;
+            int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+            buckets.incrementAndGet(stripe() * BUCKETS + bucket);
+            total.add(micros);
+        }
+
+        public long getCount() {
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * Gets the mean latency.
+         *
+         * @return the mean in microseconds
+         */
+        public long getMean() {
+            long count = getCount();
+            return count > 0 ? total.sum() / count : 0L;
+        }
+
+        /**
+         * Gets the upper bound of bucket containing given percentile of latencies.
+         *
+         * @param percentile the percentile between 0 and 1
+         * @return the latency in microseconds
+         */
+        public long getPercentile(double percentile) {
+            long[] counts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                counts[i % BUCKETS] += buckets.get(i);
+                count += buckets.get(i);
+            }
+            if (count == 0) {
+                return 0L;
+            }
+
+            long threshold = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts[bucket];
+                if (seen >= threshold) {
+                    return 1L << bucket;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+    }
+
+    /**
+     * Hits and misses of a cache.
+     */
+    public static final class CacheCounter {
+
+        private final Counter hits = new Counter();
+
+        private final Counter misses = new Counter();
+
+        public void hit() {
+            if (isEnabled()) {
+                hits.increment();
+            }
+        }
+
+        public void miss() {
+            if (isEnabled()) {
+                misses.increment();
+            }
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        /**
+         * Gets the hit rate.
+         *
+         * @return the percent of lookups which were hits
+         */
+        public long getHitRate() {
+            long hits = getHits();
+            long lookups = hits + getMisses();
+            return lookups > 0 ? hits * 100 / lookups : 0L;
+        }
+    }
+
+    /**
+     * Checks of secured method, see {@link SecurityPlan#getMetrics()}.
+     */
+    public static final class MethodMetrics {
+
+        private final String name;
+
+        private final Counter checks = new Counter(1);
+
+        private final Counter denied = new Counter(1);
+
+        private final Counter accessTime = new Counter(1);
+
+        MethodMetrics(Method method) {
+            StringBuilder name = new StringBuilder(method.getDeclaringClass().getName()).append('.')
+                    .append(method.getName()).append('(');
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                name.append(i > 0 ? ", " : "").append(parameterTypes[i].getSimpleName());
+            }
+            this.name = name.append(')').toString();
+        }
+
+        /**
+         * Records invocation of secured method.
+         */
+        public void onCheck() {
+            if (isEnabled()) {
+                checks.increment();
+            }
+        }
+
+        /**
+         * Records denied invocation of secured method.
+         */
+        public void onDenied() {
+            if (isEnabled()) {
+                denied.increment();
+            }
+        }
+
+        /**
+         * Records time spent on access checks of arguments started at given time, see {@link SecurityMetrics#start()}.
+         *
+         * @param start the start time in nanoseconds or 0 if checks were not measured
+         */
+        public void recordAccessCheck(long start) {
+            if (start != 0L && isEnabled()) {
+                accessTime.add(System.nanoTime() - start);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getChecks() {
+            return checks.sum();
+        }
+
+        public long getAllowed() {
+            return Math.max(getChecks() - getDenied(), 0L);
+        }
+
+        public long getDenied() {
+            return denied.sum();
+        }
+
+        /**
+         * Gets the total time spent on access checks of arguments.
+         *
+         * @return the time in microseconds
+         */
+        public long getAccessTime() {
+            return accessTime.sum() / 1000L;
+        }
+    }
+}
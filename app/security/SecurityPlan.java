@@ -0,0 +1,415 @@
+package security;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import play.Logger;
+import security.annotation.Access;
+import security.annotation.Access.AccessType;
+import security.annotation.AnyRole;
+import security.annotation.RestrictedResource;
+import security.annotation.RoleRequired;
+import security.annotation.Unsecured;
+import security.role.RoleMask;
+
+/**
+ * Immutable, precompiled security metadata of a single secured method. The plan is resolved once from annotations of
+ * the method, its class and its parameters and then reused by every invocation, so no reflection is done on the
+ * hot path.
+ * <p/>
+ * Plans are cached per method, use {@link #forMethod(Class, String, Class[])} to obtain one. Enhanced classes keep
+ * their plans in static fields initialized by {@link #forMethod(Class, String, String)}.
+ */
+public final class SecurityPlan {
+
+    private static final String[] NO_ROLES = new String[0];
+
+    private static final AccessParameter[] NO_ACCESS_PARAMETERS = new AccessParameter[0];
+
+    private static final ConcurrentMap<MethodKey, SecurityPlan> plans = new ConcurrentHashMap<MethodKey, SecurityPlan>();
+
+    private final Method method;
+
+    private final boolean unsecured;
+
+    private final boolean anyRole;
+
+    private final String[] roleNames;
+
+    private final RoleMask roleMask;
+
+    private final AccessParameter[] accessParameters;
+
+    private final List<String> resourceNames;
+
+    private final boolean staticFallback;
+
+    private final SecurityMetrics.MethodMetrics metrics;
+
+    private SecurityPlan(Method method) {
+        this.method = method;
+        this.metrics = SecurityMetrics.forMethod(method);
+        this.unsecured = method.isAnnotationPresent(Unsecured.class);
+
+        AnyRole anyRoleAnnotation = getAnnotationFromMethodOrClass(method, AnyRole.class);
+        this.anyRole = anyRoleAnnotation != null;
+
+        RoleRequired roleRequired = getAnnotationFromMethodOrClass(method, RoleRequired.class);
+        this.roleNames = roleRequired != null ? roleRequired.value() : NO_ROLES;
+        this.roleMask = RoleMask.of(roleNames);
+
+        this.accessParameters = resolveAccessParameters(method);
+
+        RestrictedResource restrictedResource = getAnnotationFromMethodOrClass(method, RestrictedResource.class);
+        this.resourceNames = restrictedResource != null
+                ? Collections.unmodifiableList(Arrays.asList(restrictedResource.name())) : Collections.<String>emptyList();
+        this.staticFallback = restrictedResource != null && restrictedResource.staticFallback();
+    }
+
+    /**
+     * Gets the plan of the method with given parameter types. The plan is resolved on first use and cached.
+     *
+     * @param clazz the declaring class
+     * @param methodName the method name
+     * @param paramTypes the param types
+     * @return the plan
+     * @throws IllegalArgumentException if there is no such method
+     */
+    public static SecurityPlan forMethod(Class<?> clazz, String methodName, Class<?>[] paramTypes) {
+        MethodKey key = new MethodKey(clazz, methodName, paramTypes);
+        SecurityPlan plan = plans.get(key);
+
+        if (plan == null) {
+            Method method;
+            try {
+                method = clazz.getDeclaredMethod(methodName, paramTypes);
+            } catch (NoSuchMethodException e) {
+                Logger.error(e, "Cannot resolve security plan of %s.%s", clazz.getName(), methodName);
+                throw new IllegalArgumentException(String.format("Method %s not found in %s", methodName,
+                        clazz.getName()), e);
+            }
+
+            SecurityPlan resolved = new SecurityPlan(method);
+            plan = plans.putIfAbsent(key.copy(), resolved);
+            if (plan == null) {
+                plan = resolved;
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Resolves the plan of the method with given bytecode descriptor. Used by enhanced classes to initialize their
+     * plan fields once, so the plan is not cached here.
+     *
+     * @param clazz the declaring class
+     * @param methodName the method name
+     * @param descriptor the method descriptor, e.g. <code>(Ljava/lang/Long;)V</code>
+     * @return the plan
+     * @throws IllegalArgumentException if there is no such method
+     */
+    public static SecurityPlan forMethod(Class<?> clazz, String methodName, String descriptor) {
+        for (Method method : clazz.getDeclaredMethods()) {
+            if (method.getName().equals(methodName) && descriptor.equals(getDescriptor(method))) {
+                return new SecurityPlan(method);
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Method %s%s not found in %s", methodName, descriptor,
+                clazz.getName()));
+    }
+
+    /**
+     * Drops all cached plans, e.g. after application classes were reloaded.
+     */
+    public static void clearCache() {
+        plans.clear();
+    }
+
+    /**
+     * Gets the secured method.
+     *
+     * @return the method
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Checks if the method is annotated with {@link Unsecured}.
+     *
+     * @return true, if is unsecured
+     */
+    public boolean isUnsecured() {
+        return unsecured;
+    }
+
+    /**
+     * Checks if the method or its class is annotated with {@link AnyRole}.
+     *
+     * @return true, if logged user is required
+     */
+    public boolean isAnyRole() {
+        return anyRole;
+    }
+
+    /**
+     * Gets the role names from {@link RoleRequired} of the method or its class. The returned array must not be modified.
+     *
+     * @return the role names, empty if there is no role restriction
+     */
+    public String[] getRoleNames() {
+        return roleNames;
+    }
+
+    /**
+     * Gets the mask of roles from {@link RoleRequired} of the method or its class.
+     *
+     * @return the role mask, empty if there is no role restriction
+     */
+    public RoleMask getRoleMask() {
+        return roleMask;
+    }
+
+    /**
+     * Gets the parameters annotated with {@link Access} in order of declaration. The returned array must not be modified.
+     *
+     * @return the access parameters
+     */
+    public AccessParameter[] getAccessParameters() {
+        return accessParameters;
+    }
+
+    /**
+     * Gets the names of resources from {@link RestrictedResource} of the method or its class.
+     *
+     * @return the unmodifiable list of resource names, empty if there is no resource restriction
+     */
+    public List<String> getResourceNames() {
+        return resourceNames;
+    }
+
+    /**
+     * Checks if unspecified access to restricted resources is allowed, see {@link RestrictedResource#staticFallback()}.
+     *
+     * @return true, if unspecified access falls back to other checks
+     */
+    public boolean isStaticFallback() {
+        return staticFallback;
+    }
+
+    /**
+     * Gets the metrics of the method, shared by all its plans.
+     *
+     * @return the metrics
+     */
+    public SecurityMetrics.MethodMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Checks if any check has to be executed on invocation of the method.
+     *
+     * @return true, if there is something to check
+     */
+    public boolean hasChecks() {
+        return !unsecured && (anyRole || roleNames.length > 0 || accessParameters.length > 0 || !resourceNames.isEmpty());
+    }
+
+    private static AccessParameter[] resolveAccessParameters(Method method) {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        List<AccessParameter> parameters = new ArrayList<AccessParameter>();
+
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof Access) {
+                    Access access = (Access) annotation;
+                    parameters.add(new AccessParameter(i, access.value(), access.type(), isMultiple(parameterTypes[i])));
+                }
+            }
+        }
+
+        return parameters.isEmpty() ? NO_ACCESS_PARAMETERS : parameters.toArray(new AccessParameter[parameters.size()]);
+    }
+
+    private static boolean isMultiple(Class<?> parameterType) {
+        return Collection.class.isAssignableFrom(parameterType)
+                || (parameterType.isArray() && !parameterType.getComponentType().isPrimitive());
+    }
+
+    private static String getDescriptor(Method method) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Class<?> paramType : method.getParameterTypes()) {
+            appendDescriptor(descriptor, paramType);
+        }
+        descriptor.append(')');
+        appendDescriptor(descriptor, method.getReturnType());
+
+        return descriptor.toString();
+    }
+
+    private static void appendDescriptor(StringBuilder descriptor, Class<?> type) {
+        while (type.isArray()) {
+            descriptor.append('[');
+            type = type.getComponentType();
+        }
+
+        if (type == Void.TYPE) {
+            descriptor.append('V');
+        } else if (type == Boolean.TYPE) {
+            descriptor.append('Z');
+        } else if (type == Byte.TYPE) {
+            descriptor.append('B');
+        } else if (type == Character.TYPE) {
+            descriptor.append('C');
+        } else if (type == Short.TYPE) {
+            descriptor.append('S');
+        } else if (type == Integer.TYPE) {
+            descriptor.append('I');
+        } else if (type == Long.TYPE) {
+            descriptor.append('J');
+        } else if (type == Float.TYPE) {
+            descriptor.append('F');
+        } else if (type == Double.TYPE) {
+            descriptor.append('D');
+        } else {
+            descriptor.append('L').append(type.getName().replace('.', '/')).append(';');
+        }
+    }
+
+    /**
+     * Gets the annotation from method or class if the annotation is not present on method.
+     *
+     * @param <T> the generic type
+     * @param method the method
+     * @param annotationClass the annotation class
+     * @return the annotation from method or class or null if there is no such annotation on method nor class
+     */
+    private static <T extends Annotation> T getAnnotationFromMethodOrClass(Method method, Class<T> annotationClass) {
+        T annotation = method.getAnnotation(annotationClass);
+
+        if (annotation == null) {
+            annotation = method.getDeclaringClass().getAnnotation(annotationClass);
+        }
+
+        return annotation;
+    }
+
+    /**
+     * Method parameter annotated with {@link Access}.
+     */
+    public static final class AccessParameter {
+
+        private final int index;
+
+        private final AccessType[] accessTypes;
+
+        private final short accessMask;
+
+        private final Class<? extends AclManaged> type;
+
+        private final boolean multiple;
+
+        AccessParameter(int index, AccessType[] accessTypes, Class<? extends AclManaged> type, boolean multiple) {
+            this.index = index;
+            this.accessTypes = accessTypes;
+            this.accessMask = AccessType.toMask(accessTypes);
+            this.type = type;
+            this.multiple = multiple;
+        }
+
+        /**
+         * Gets the index of parameter in method signature.
+         *
+         * @return the index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the access types to check. The returned array must not be modified.
+         *
+         * @return the access types
+         */
+        public AccessType[] getAccessTypes() {
+            return accessTypes;
+        }
+
+        /**
+         * Gets the mask of access types to check, see {@link AccessType#toMask(AccessType...)}.
+         *
+         * @return the access mask
+         */
+        public short getAccessMask() {
+            return accessMask;
+        }
+
+        /**
+         * Gets the target type of check, see {@link Access#type()}.
+         *
+         * @return the type
+         */
+        public Class<? extends AclManaged> getType() {
+            return type;
+        }
+
+        /**
+         * Checks if the parameter is a {@link Collection} or an array of objects, each of them is checked.
+         *
+         * @return true, if the parameter holds many context objects
+         */
+        public boolean isMultiple() {
+            return multiple;
+        }
+    }
+
+    private static final class MethodKey {
+
+        private final Class<?> clazz;
+
+        private final String methodName;
+
+        private final Class<?>[] paramTypes;
+
+        private final int hash;
+
+        MethodKey(Class<?> clazz, String methodName, Class<?>[] paramTypes) {
+            this.clazz = clazz;
+            this.methodName = methodName;
+            this.paramTypes = paramTypes;
+            this.hash = 31 * (31 * clazz.hashCode() + methodName.hashCode()) + Arrays.hashCode(paramTypes);
+        }
+
+        /**
+         * Copies the key before it is cached, so it is not changed when array of caller is modified.
+         */
+        MethodKey copy() {
+            return new MethodKey(clazz, methodName, paramTypes.clone());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof MethodKey)) {
+                return false;
+            }
+
+            MethodKey other = (MethodKey) obj;
+            return clazz == other.clazz && methodName.equals(other.methodName) && Arrays.equals(paramTypes, other.paramTypes);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package security;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import play.Logger;
+import play.Play;
+import play.exceptions.ConfigurationException;
+import security.handler.RestrictedResourcesProvider;
+
+/**
+ * Resolves and validates plans of all enhanced methods when application starts, see {@link SecurityConfig#WARMUP_KEY},
+ * so first invocations of secured methods do not pay for reflection and misconfiguration is reported before any
+ * request is served.
+ */
+public final class SecurityWarmup {
+
+    /**
+     * Prefix of static fields holding plans of enhanced methods, see <code>SecurityEnhancer</code>.
+     */
+    static final String PLAN_FIELD_PREFIX = "__securityPlan";
+
+    private final Set<String> knownRoles;
+
+    private final boolean restrictedResourcesProvider;
+
+    private final List<String> errors = new ArrayList<String>();
+
+    private final Set<String> roles = new TreeSet<String>();
+
+    private int classes;
+
+    private int methods;
+
+    private int roleChecks;
+
+    private int accessChecks;
+
+    private int resourceChecks;
+
+    private SecurityWarmup(Set<String> knownRoles, boolean restrictedResourcesProvider) {
+        this.knownRoles = knownRoles;
+        this.restrictedResourcesProvider = restrictedResourcesProvider;
+    }
+
+    /**
+     * Initializes given classes, which resolves plans of their enhanced methods, validates the plans and logs summary
+     * of secured methods.
+     *
+     * @param classNames names of classes with enhanced methods, all application classes are examined if empty
+     * @return the number of secured methods whose plans were resolved and validated
+     * @throws ConfigurationException if plan of any method is invalid
+     */
+    public static int warmUp(Collection<String> classNames) {
+        long start = System.currentTimeMillis();
+        Security security = Security.getInstance();
+        SecurityWarmup warmup = new SecurityWarmup(SecurityConfig.get().getRoles(),
+                security.securityHandler instanceof RestrictedResourcesProvider);
+
+        if (classNames.isEmpty()) {
+            for (Class<?> clazz : Play.classloader.getAllClasses()) {
+                warmup.warmUp(clazz);
+            }
+        } else {
+            for (String className : classNames) {
+                try {
+                    warmup.warmUp(Play.classloader.loadClass(className));
+                } catch (ClassNotFoundException e) {
+                    Logger.debug("Skipping warm-up of removed class %s", className);
+                }
+            }
+        }
+
+        if (!warmup.errors.isEmpty()) {
+            StringBuilder message = new StringBuilder("Invalid security configuration:");
+            for (String error : warmup.errors) {
+                message.append("\n  ").append(error);
+            }
+            throw new ConfigurationException(message.toString());
+        }
+
+        Logger.info("Security warmed up in %d ms: %d secured methods in %d classes, %d role checks of roles %s, "
+                + "%d access checks, %d resource checks", System.currentTimeMillis() - start, warmup.methods,
+                warmup.classes, warmup.roleChecks, warmup.roles, warmup.accessChecks, warmup.resourceChecks);
+        return warmup.methods;
+    }
+
+    private void warmUp(Class<?> clazz) {
+        boolean secured = false;
+        for (Field field : clazz.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || !field.getName().startsWith(PLAN_FIELD_PREFIX)
+                    || field.getType() != SecurityPlan.class) {
+                continue;
+            }
+
+            SecurityPlan plan;
+            try {
+                field.setAccessible(true);
+                plan = (SecurityPlan) field.get(null);
+            } catch (IllegalAccessException e) {
+                errors.add(String.format("Cannot read plan %s of %s: %s", field.getName(), clazz.getName(),
+                        e.getMessage()));
+                continue;
+            } catch (ExceptionInInitializerError e) {
+                errors.add(String.format("Cannot resolve plans of %s: %s", clazz.getName(), e.getCause()));
+                return;
+            }
+
+            secured = true;
+            methods++;
+            validate(plan);
+        }
+
+        if (secured) {
+            classes++;
+        }
+    }
+
+    private void validate(SecurityPlan plan) {
+        String method = plan.getMethod().getDeclaringClass().getName() + "." + plan.getMethod().getName();
+
+        if (plan.getRoleNames().length > 0) {
+            roleChecks++;
+        }
+        for (String role : plan.getRoleNames()) {
+            roles.add(role);
+            if (knownRoles != null && !knownRoles.contains(role)) {
+                errors.add(String.format("Unknown role %s in @RoleRequired of %s, roles are defined by %s", role,
+                        method, SecurityConfig.ROLES_KEY));
+            }
+        }
+
+        for (SecurityPlan.AccessParameter parameter : plan.getAccessParameters()) {
+            accessChecks++;
+            Class<?> type = getContextObjectType(plan, parameter);
+            if (parameter.getType() == AclManaged.class && type != null && !AclManaged.class.isAssignableFrom(type)
+                    && type != Object.class && !type.isInterface()) {
+                errors.add(String.format("@Access on parameter %d of %s of type %s requires type()",
+                        parameter.getIndex(), method, type.getName()));
+            }
+        }
+
+        if (!plan.getResourceNames().isEmpty()) {
+            resourceChecks++;
+            if (!restrictedResourcesProvider && !plan.isStaticFallback()) {
+                errors.add(String.format("@RestrictedResource of %s requires SecurityHandler implementing %s",
+                        method, RestrictedResourcesProvider.class.getName()));
+            }
+        }
+    }
+
+    /**
+     * Gets the type of context objects of parameter, the element type of collection or array parameters.
+     *
+     * @return the type or null if it is not known
+     */
+    private static Class<?> getContextObjectType(SecurityPlan plan, SecurityPlan.AccessParameter parameter) {
+        Class<?> type = plan.getMethod().getParameterTypes()[parameter.getIndex()];
+        if (!parameter.isMultiple()) {
+            return type;
+        }
+        if (type.isArray()) {
+            return type.getComponentType();
+        }
+
+        Type genericType = plan.getMethod().getGenericParameterTypes()[parameter.getIndex()];
+        if (genericType instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+            if (arguments.length == 1 && arguments[0] instanceof Class) {
+                return (Class<?>) arguments[0];
+            }
+        }
+        return null;
+    }
+}
@@ -32,6 +32,25 @@ public @interface Access {
         DELETE((short) 4),
         ALL((short) 7);
 
+        private static final AccessType[][] BY_MASK = new AccessType[ALL.code + 1][];
+
+        static {
+            for (int mask = 0; mask < BY_MASK.length; mask++) {
+                AccessType[] accessTypes = new AccessType[Integer.bitCount(mask)];
+                if (mask == ALL.code) {
+                    accessTypes = new AccessType[] {ALL};
+                } else {
+                    int i = 0;
+                    for (AccessType accessType : values()) {
+                        if (accessType != ALL && (mask & accessType.code) != 0) {
+                            accessTypes[i++] = accessType;
+                        }
+                    }
+                }
+                BY_MASK[mask] = accessTypes;
+            }
+        }
+
         private final short code;
 
         private AccessType(short code) {
@@ -41,6 +60,36 @@ public @interface Access {
         public short getCode() {
             return code;
         }
+
+        /**
+         * Gets the mask of given access types, bitwise or of their codes.
+         *
+         * @param accessTypes the access types
+         * @return the access mask
+         */
+        public static short toMask(AccessType... accessTypes) {
+            short mask = 0;
+            for (AccessType accessType : accessTypes) {
+                mask |= accessType.code;
+            }
+
+            return mask;
+        }
+
+        /**
+         * Gets the shared array of access types of given mask. Array of single access type is returned for mask equal
+         * to its code. The returned array must not be modified.
+         *
+         * @param mask the access mask
+         * @return the access types
+         */
+        public static AccessType[] fromMask(int mask) {
+            if (mask < 0 || mask >= BY_MASK.length) {
+                throw new IllegalArgumentException("Invalid access mask: " + mask);
+            }
+
+            return BY_MASK[mask];
+        }
     }
 
     /**
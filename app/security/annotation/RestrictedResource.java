@@ -0,0 +1,38 @@
+package security.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Restrict access to method or all methods of class to users which have access to named resources. Access is checked
+ * by {@link security.handler.RestrictedResourcesHandler} returned by {@link security.handler.SecurityHandler}
+ * implementing {@link security.handler.RestrictedResourcesProvider}. Example:
+ * <p/>
+ * &#64;RestrictedResource(name = "reports")
+ * public void showReports()
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Documented
+@Inherited
+public @interface RestrictedResource
+{
+    /**
+     * The names of the resource.
+     *
+     * @return the resource names
+     */
+    String[] name();
+
+    /**
+     * Allow access when {@link security.handler.AccessResult#NOT_SPECIFIED} is returned for the resource, so access
+     * depends only on other annotations, e.g. {@link RoleRequired}.
+     *
+     * @return true, if unspecified access falls back to other annotations
+     */
+    boolean staticFallback() default false;
+}
@@ -0,0 +1,368 @@
+package security.cache;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import play.db.Model;
+import play.libs.F;
+import security.AclManaged;
+import security.SecurityContext;
+import security.SecurityJob;
+import security.SecurityMetrics;
+import security.annotation.Access.AccessType;
+import security.handler.AbstractAccessHandler;
+import security.handler.AccessHandler;
+import security.handler.AccessResult;
+import security.handler.AsyncAccessHandler;
+import security.handler.BatchAccessHandler;
+import security.handler.MaskAccessHandler;
+import security.handler.PrincipalKeyProvider;
+import security.role.RoleHolder;
+
+/**
+ * {@link AccessHandler} caching both {@link AccessResult#ALLOWED} and {@link AccessResult#DENIED} decisions of another
+ * handler. Decisions are cached by principal key of current user, type and identity of checked object and mask of
+ * checked access types. Identity of {@link Model} objects is their key, other objects are compared with equals.
+ * <p/>
+ * Decisions are cached only for the role holder of current {@link SecurityContext}, which the principal key belongs
+ * to. Decisions are not cached for other role holders, outside of a context, when there is no principal key (guests)
+ * or no checked object. Batch checks ask the delegate
+ * only about objects without cached decision, at once if the delegate is {@link BatchAccessHandler}. Asynchronous checks
+ * return cached decisions at once and ask {@link AsyncAccessHandler} delegate or run the check in a job otherwise.
+ */
+public class CachingAccessHandler implements BatchAccessHandler, MaskAccessHandler, AsyncAccessHandler {
+
+    private final AccessHandler delegate;
+
+    private final PrincipalKeyProvider principalKeyProvider;
+
+    private final LruCache<DecisionKey, AccessResult> decisions;
+
+    /**
+     * Creates handler caching decisions of given handler.
+     *
+     * @param delegate the handler making decisions
+     * @param principalKeyProvider the provider of current user key
+     * @param maxSize the maximum number of cached decisions
+     * @param ttl the time to live of cached decisions
+     * @param unit the unit of ttl
+     */
+    public CachingAccessHandler(AccessHandler delegate, PrincipalKeyProvider principalKeyProvider, int maxSize,
+            long ttl, TimeUnit unit) {
+        this(delegate, principalKeyProvider, new LruCache<DecisionKey, AccessResult>(maxSize, ttl, unit));
+    }
+
+    private CachingAccessHandler(AccessHandler delegate, PrincipalKeyProvider principalKeyProvider,
+            LruCache<DecisionKey, AccessResult> decisions) {
+        this.delegate = delegate;
+        this.principalKeyProvider = principalKeyProvider;
+        this.decisions = decisions;
+    }
+
+    /**
+     * Gets handler caching decisions of given handler in the cache of this handler, e.g. when
+     * {@link security.handler.SecurityHandler} returns new instance of the same handler on each call.
+     *
+     * @param delegate the handler making decisions
+     * @return this handler if it already delegates to given handler, new handler sharing the cache otherwise
+     */
+    public CachingAccessHandler withDelegate(AccessHandler delegate) {
+        if (delegate == this.delegate) {
+            return this;
+        }
+
+        return new CachingAccessHandler(delegate, principalKeyProvider, decisions);
+    }
+
+    public AccessResult checkAccess(RoleHolder roleHolder, AclManaged contextObject, AccessType[] accessTypes) {
+        return checkAccess(roleHolder, contextObject, AccessType.toMask(accessTypes), accessTypes);
+    }
+
+    public AccessResult checkAccess(RoleHolder roleHolder, AclManaged contextObject, int accessMask) {
+        return checkAccess(roleHolder, contextObject, accessMask, null);
+    }
+
+    private AccessResult checkAccess(RoleHolder roleHolder, AclManaged contextObject, int accessMask,
+            AccessType[] accessTypes) {
+        Object principalKey = contextObject != null ? principalKeyOf(roleHolder) : null;
+        if (principalKey == null) {
+            return checkDelegate(roleHolder, contextObject, accessMask, accessTypes);
+        }
+
+        DecisionKey key = new DecisionKey(principalKey, contextObject.getClass(), identityOf(contextObject),
+                accessMask);
+        AccessResult result = decisions.get(key);
+        if (result == null) {
+            SecurityMetrics.ACL_CACHE.miss();
+            result = checkDelegate(roleHolder, contextObject, accessMask, accessTypes);
+            if (result != null) {
+                decisions.put(key, result);
+            }
+        } else {
+            SecurityMetrics.ACL_CACHE.hit();
+        }
+
+        return result;
+    }
+
+    public BitSet checkAccess(RoleHolder roleHolder, Collection<? extends AclManaged> contextObjects,
+            AccessType[] accessTypes) {
+        Object principalKey = principalKeyOf(roleHolder);
+        if (principalKey == null) {
+            return checkEach(delegate, roleHolder, contextObjects, accessTypes);
+        }
+
+        int accessMask = AccessType.toMask(accessTypes);
+        BitSet allowed = new BitSet(contextObjects.size());
+        List<AclManaged> missed = new ArrayList<AclManaged>();
+        List<DecisionKey> missedKeys = new ArrayList<DecisionKey>();
+        List<Integer> missedIndexes = new ArrayList<Integer>();
+
+        int i = 0;
+        for (AclManaged contextObject : contextObjects) {
+            DecisionKey key = contextObject != null
+                    ? new DecisionKey(principalKey, contextObject.getClass(), identityOf(contextObject), accessMask)
+                    : null;
+            AccessResult result = key != null ? decisions.get(key) : null;
+            if (key != null) {
+                if (result != null) {
+                    SecurityMetrics.ACL_CACHE.hit();
+                } else {
+                    SecurityMetrics.ACL_CACHE.miss();
+                }
+            }
+
+            if (result == AccessResult.ALLOWED) {
+                allowed.set(i);
+            } else if (result == null) {
+                missed.add(contextObject);
+                missedKeys.add(key);
+                missedIndexes.add(i);
+            }
+            i++;
+        }
+
+        if (!missed.isEmpty()) {
+            BitSet missedAllowed = checkEach(delegate, roleHolder, missed, accessTypes);
+            for (int j = 0; j < missed.size(); j++) {
+                boolean isAllowed = missedAllowed.get(j);
+                if (isAllowed) {
+                    allowed.set(missedIndexes.get(j));
+                }
+                if (missedKeys.get(j) != null) {
+                    decisions.put(missedKeys.get(j), isAllowed ? AccessResult.ALLOWED : AccessResult.DENIED);
+                }
+            }
+        }
+
+        return allowed;
+    }
+
+    public F.Promise<AccessResult> checkAccessAsync(final RoleHolder roleHolder, final AclManaged contextObject,
+            final AccessType[] accessTypes) {
+        Object principalKey = contextObject != null ? principalKeyOf(roleHolder) : null;
+        final int accessMask = AccessType.toMask(accessTypes);
+        final DecisionKey key = principalKey != null ? new DecisionKey(principalKey, contextObject.getClass(),
+                identityOf(contextObject), accessMask) : null;
+
+        AccessResult cached = key != null ? decisions.get(key) : null;
+        if (cached != null) {
+            SecurityMetrics.ACL_CACHE.hit();
+            F.Promise<AccessResult> result = new F.Promise<AccessResult>();
+            result.invoke(cached);
+            return result;
+        }
+
+        if (key != null) {
+            SecurityMetrics.ACL_CACHE.miss();
+        }
+
+        if (!(delegate instanceof AsyncAccessHandler)) {
+            // the key is computed here, principal key of the user is usually not available in the job
+            return new SecurityJob<AccessResult>() {
+                @Override
+                public AccessResult doJobWithResult() {
+                    AccessResult accessResult = checkDelegate(roleHolder, contextObject, accessMask, accessTypes);
+                    if (key != null && accessResult != null) {
+                        decisions.put(key, accessResult);
+                    }
+                    return accessResult;
+                }
+            }.now();
+        }
+
+        F.Promise<AccessResult> result = ((AsyncAccessHandler) delegate).checkAccessAsync(roleHolder, contextObject,
+                accessTypes);
+        if (key != null) {
+            result.onRedeem(new F.Action<F.Promise<AccessResult>>() {
+                public void invoke(F.Promise<AccessResult> redeemed) {
+                    try {
+                        AccessResult accessResult = redeemed.get();
+                        if (accessResult != null) {
+                            decisions.put(key, accessResult);
+                        }
+                    } catch (Exception e) {
+                        // failed checks are not cached
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    public AclManaged toAclManaged(Object contextObject, Class<? extends AclManaged> type) {
+        return delegate.toAclManaged(contextObject, type);
+    }
+
+    public List<AclManaged> toAclManaged(Collection<?> contextObjects, Class<? extends AclManaged> type) {
+        if (delegate instanceof BatchAccessHandler) {
+            return ((BatchAccessHandler) delegate).toAclManaged(contextObjects, type);
+        }
+
+        return AbstractAccessHandler.toEach(delegate, contextObjects, type);
+    }
+
+    /**
+     * Gets the handler making decisions.
+     *
+     * @return the delegate
+     */
+    public AccessHandler getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Removes cached decisions of all users about given object.
+     *
+     * @param contextObject the context object
+     */
+    public void invalidate(AclManaged contextObject) {
+        final Class<?> type = contextObject.getClass();
+        final Object identity = identityOf(contextObject);
+
+        decisions.removeKeys(new LruCache.KeyFilter<DecisionKey>() {
+            public boolean accept(DecisionKey key) {
+                return (key.type.isAssignableFrom(type) || type.isAssignableFrom(key.type))
+                        && key.identity.equals(identity);
+            }
+        });
+    }
+
+    /**
+     * Removes cached decisions of given user.
+     *
+     * @param principalKey the principal key
+     */
+    public void invalidatePrincipal(final Object principalKey) {
+        decisions.removeKeys(new LruCache.KeyFilter<DecisionKey>() {
+            public boolean accept(DecisionKey key) {
+                return key.principalKey.equals(principalKey);
+            }
+        });
+    }
+
+    /**
+     * Removes cached decisions about all objects of given type and its subtypes.
+     *
+     * @param type the type
+     */
+    public void invalidateType(final Class<?> type) {
+        decisions.removeKeys(new LruCache.KeyFilter<DecisionKey>() {
+            public boolean accept(DecisionKey key) {
+                return type.isAssignableFrom(key.type);
+            }
+        });
+    }
+
+    /**
+     * Removes all cached decisions.
+     */
+    public void invalidateAll() {
+        decisions.clear();
+    }
+
+    /**
+     * Gets the principal key of given role holder if it is the user of current {@link SecurityContext}.
+     *
+     * @param roleHolder the role holder
+     * @return the principal key or null if decisions of role holder are not cached
+     */
+    private Object principalKeyOf(RoleHolder roleHolder) {
+        SecurityContext context = SecurityContext.current();
+        if (context == null || !context.isCurrentRoleHolder(roleHolder)) {
+            return null;
+        }
+
+        return principalKeyProvider.getPrincipalKey();
+    }
+
+    private AccessResult checkDelegate(RoleHolder roleHolder, AclManaged contextObject, int accessMask,
+            AccessType[] accessTypes) {
+        if (delegate instanceof MaskAccessHandler) {
+            return ((MaskAccessHandler) delegate).checkAccess(roleHolder, contextObject, accessMask);
+        }
+
+        return delegate.checkAccess(roleHolder, contextObject,
+                accessTypes != null ? accessTypes : AccessType.fromMask(accessMask));
+    }
+
+    private static BitSet checkEach(AccessHandler accessHandler, RoleHolder roleHolder,
+            Collection<? extends AclManaged> contextObjects, AccessType[] accessTypes) {
+        if (accessHandler instanceof BatchAccessHandler) {
+            return ((BatchAccessHandler) accessHandler).checkAccess(roleHolder, contextObjects, accessTypes);
+        }
+
+        return AbstractAccessHandler.checkEach(accessHandler, roleHolder, contextObjects, accessTypes);
+    }
+
+    private static Object identityOf(AclManaged contextObject) {
+        if (contextObject instanceof Model) {
+            Object key = ((Model) contextObject)._key();
+            if (key != null) {
+                return key;
+            }
+        }
+
+        return contextObject;
+    }
+
+    private static final class DecisionKey {
+
+        private final Object principalKey;
+
+        private final Class<?> type;
+
+        private final Object identity;
+
+        private final int accessMask;
+
+        private final int hash;
+
+        DecisionKey(Object principalKey, Class<?> type, Object identity, int accessMask) {
+            this.principalKey = principalKey;
+            this.type = type;
+            this.identity = identity;
+            this.accessMask = accessMask;
+            this.hash = 31 * (31 * (31 * principalKey.hashCode() + type.hashCode()) + identity.hashCode()) + accessMask;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof DecisionKey)) {
+                return false;
+            }
+
+            DecisionKey other = (DecisionKey) obj;
+            return accessMask == other.accessMask && type == other.type && principalKey.equals(other.principalKey)
+                    && identity.equals(other.identity);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package security.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory cache with least recently used eviction and time to live of entries. The cache is split into
+ * independently locked segments, so concurrent lookups of different keys rarely contend.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class LruCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+
+    private final long ttlNanos;
+
+    /**
+     * Creates the cache.
+     *
+     * @param maxSize the maximum number of entries
+     * @param ttl the time to live of entries, 0 or less if entries do not expire
+     * @param unit the unit of ttl
+     */
+    @SuppressWarnings("unchecked")
+    public LruCache(int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+
+        int segmentCount = Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MAX_SEGMENTS));
+        int segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+
+        this.segments = (Segment<K, V>[]) new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<K, V>(segmentSize);
+        }
+        this.ttlNanos = ttl > 0 ? unit.toNanos(ttl) : 0;
+    }
+
+    /**
+     * Gets the value cached for given key.
+     *
+     * @param key the key
+     * @return the value or null if there is no such value or it has expired
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            CacheEntry<V> entry = segment.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(System.nanoTime())) {
+                segment.remove(key);
+                return null;
+            }
+
+            return entry.value;
+        }
+    }
+
+    /**
+     * Caches the value for given key, evicting least recently used entry if the cache is full.
+     *
+     * @param key the key
+     * @param value the value, not null
+     */
+    public void put(K key, V value) {
+        long expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            segment.put(key, new CacheEntry<V>(value, expiresAt));
+        }
+    }
+
+    /**
+     * Removes the value cached for given key.
+     *
+     * @param key the key
+     */
+    public void remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    /**
+     * Removes values of all keys accepted by given filter.
+     *
+     * @param filter the key filter
+     */
+    public void removeKeys(KeyFilter<? super K> filter) {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                for (Iterator<K> keys = segment.keySet().iterator(); keys.hasNext();) {
+                    if (filter.accept(keys.next())) {
+                        keys.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of cached values, including expired ones not evicted yet.
+     *
+     * @return the size
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    /**
+     * Selects keys to remove from cache.
+     *
+     * @param <K> the key type
+     */
+    public interface KeyFilter<K> {
+
+        /**
+         * Checks if value of the key should be removed.
+         *
+         * @param key the key
+         * @return true, if accepted
+         */
+        boolean accept(K key);
+    }
+
+    private static final class CacheEntry<V> {
+
+        private final V value;
+
+        private final long expiresAt;
+
+        CacheEntry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, CacheEntry<V>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package security.handler;
+
+import java.util.BitSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import security.AclManaged;
+import security.annotation.Access.AccessType;
+import security.role.RoleHolder;
+
+/**
+ * Base {@link AccessHandler} with default implementations of optional operations. Override them when access can be
+ * checked more efficiently than object by object.
+ */
+public abstract class AbstractAccessHandler implements BatchAccessHandler, MaskAccessHandler {
+
+    /**
+     * Checks access with {@link #checkAccess(RoleHolder, AclManaged, AccessType[])} for access types of given mask.
+     */
+    public AccessResult checkAccess(RoleHolder roleHolder, AclManaged contextObject, int accessMask) {
+        return checkAccess(roleHolder, contextObject, AccessType.fromMask(accessMask));
+    }
+
+    /**
+     * Checks access for each of context objects with {@link #checkAccess(RoleHolder, AclManaged, AccessType[])}.
+     */
+    public BitSet checkAccess(RoleHolder roleHolder, Collection<? extends AclManaged> contextObjects,
+            AccessType[] accessTypes) {
+        return checkEach(this, roleHolder, contextObjects, accessTypes);
+    }
+
+    /**
+     * Converts each of context objects with {@link #toAclManaged(Object, Class)}.
+     */
+    public List<AclManaged> toAclManaged(Collection<?> contextObjects, Class<? extends AclManaged> type) {
+        return toEach(this, contextObjects, type);
+    }
+
+    /**
+     * Checks access for each of context objects one by one using given handler.
+     *
+     * @param accessHandler the access handler
+     * @param roleHolder the role holder
+     * @param contextObjects the context objects
+     * @param accessTypes the access types
+     * @return the set with bit of i-th object set if access is allowed
+     */
+    public static BitSet checkEach(AccessHandler accessHandler, RoleHolder roleHolder,
+            Collection<? extends AclManaged> contextObjects, AccessType[] accessTypes) {
+        BitSet allowed = new BitSet(contextObjects.size());
+
+        int i = 0;
+        for (AclManaged contextObject : contextObjects) {
+            if (accessHandler.checkAccess(roleHolder, contextObject, accessTypes) == AccessResult.ALLOWED) {
+                allowed.set(i);
+            }
+            i++;
+        }
+
+        return allowed;
+    }
+
+    /**
+     * Converts each of context objects one by one using given handler.
+     *
+     * @param accessHandler the access handler
+     * @param contextObjects the context objects
+     * @param type the desired type of AclManaged
+     * @return the AclManaged objects in order of context objects
+     */
+    public static List<AclManaged> toEach(AccessHandler accessHandler, Collection<?> contextObjects,
+            Class<? extends AclManaged> type) {
+        List<AclManaged> aclManaged = new ArrayList<AclManaged>(contextObjects.size());
+
+        for (Object contextObject : contextObjects) {
+            aclManaged.add(accessHandler.toAclManaged(contextObject, type));
+        }
+
+        return aclManaged;
+    }
+}
@@ -5,5 +5,6 @@ package security.handler;
  */
 public enum AccessResult {
     ALLOWED,
-    DENIED
+    DENIED,
+    NOT_SPECIFIED
 }
@@ -0,0 +1,24 @@
+package security.handler;
+
+import play.libs.F;
+import security.AclManaged;
+import security.annotation.Access.AccessType;
+import security.role.RoleHolder;
+
+/**
+ * {@link AccessHandler} checking access without blocking invocation thread, e.g. with a call to remote ACL service.
+ * Used by {@link security.Security#checkAccessAsync(AclManaged, AccessType...)}, so controllers can suspend with
+ * <code>await(promise)</code> until access is checked.
+ */
+public interface AsyncAccessHandler extends AccessHandler {
+
+    /**
+     * Checks roleHolder has access for context object.
+     *
+     * @param roleHolder the role holder
+     * @param contextObject the context object
+     * @param accessTypes the access types
+     * @return the promise of access result
+     */
+    F.Promise<AccessResult> checkAccessAsync(RoleHolder roleHolder, AclManaged contextObject, AccessType[] accessTypes);
+}
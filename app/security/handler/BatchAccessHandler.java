@@ -0,0 +1,37 @@
+package security.handler;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import security.AclManaged;
+import security.annotation.Access.AccessType;
+import security.role.RoleHolder;
+
+/**
+ * {@link AccessHandler} able to check access to many objects at once, e.g. with a single query. Extend
+ * {@link AbstractAccessHandler} to get default implementation checking objects one by one.
+ */
+public interface BatchAccessHandler extends AccessHandler {
+
+    /**
+     * Checks roleHolder has access for each of context objects.
+     *
+     * @param roleHolder the role holder
+     * @param contextObjects the context objects
+     * @param accessTypes the access types
+     * @return the set with bit of i-th object (in iteration order) set if access is allowed
+     */
+    BitSet checkAccess(RoleHolder roleHolder, Collection<? extends AclManaged> contextObjects, AccessType[] accessTypes);
+
+    /**
+     * Convert context objects to target AclManaged objects to be tested for access, e.g. load all entities with given
+     * ids with a single query.
+     *
+     * @param contextObjects Objects passed for validation
+     * @param type           Desired type of AclManaged
+     * @return Objects to validate access for in order of context objects, null for object which couldn't be retrieved
+     * @see #toAclManaged(Object, Class)
+     */
+    List<AclManaged> toAclManaged(Collection<?> contextObjects, Class<? extends AclManaged> type);
+}
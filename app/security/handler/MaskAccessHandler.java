@@ -0,0 +1,23 @@
+package security.handler;
+
+import security.AclManaged;
+import security.annotation.Access.AccessType;
+import security.role.RoleHolder;
+
+/**
+ * {@link AccessHandler} able to check access given as mask of {@link AccessType#getCode()} codes, e.g. with a single
+ * bitwise operation on stored permission mask. Used instead of {@link #checkAccess(RoleHolder, AclManaged, AccessType[])}
+ * whenever access mask is known, so no access types array has to be created.
+ */
+public interface MaskAccessHandler extends AccessHandler {
+
+    /**
+     * Checks roleHolder has access for context object.
+     *
+     * @param roleHolder the role holder
+     * @param contextObject the context object
+     * @param accessMask the mask of access types, see {@link AccessType#toMask(AccessType...)}
+     * @return the access result
+     */
+    AccessResult checkAccess(RoleHolder roleHolder, AclManaged contextObject, int accessMask);
+}
@@ -0,0 +1,15 @@
+package security.handler;
+
+/**
+ * Optional interface of {@link SecurityHandler} identifying current user without loading it, e.g. by user id stored in
+ * session. When implemented, role holders and access decisions can be cached across requests under this key.
+ */
+public interface PrincipalKeyProvider {
+
+    /**
+     * Gets the key identifying current user.
+     *
+     * @return the principal key or null if there is no logged user
+     */
+    Object getPrincipalKey();
+}
@@ -20,9 +20,9 @@ public interface RestrictedResourcesHandler
      * @param resourceNames the names of the resource
      * @param resourceParameters additional information on the resource
      * @return {@link AccessResult#ALLOWED} if access is permitted.  {@link AccessResult#DENIED} if access is denied.
-     * {@link controllers.deadbolt.RestrictedResource#staticFallback()} is false, access is denied.</li>
+     * {@link security.annotation.RestrictedResource#staticFallback()} is false, access is denied.</li>
      * <li>If {@link AccessResult#NOT_SPECIFIED} is returned and
-     * {@link controllers.deadbolt.RestrictedResource#staticFallback()} is true, any further RoleRequired or
+     * {@link security.annotation.RestrictedResource#staticFallback()} is true, any further RoleRequired or
      * Restrictions annotations are processed.  Note that if no RoleRequired or Restrictions annotations are present,
      * access will be allowed.</li>
      * </ul>
@@ -0,0 +1,15 @@
+package security.handler;
+
+/**
+ * Implemented by {@link SecurityHandler} which restricts access to named resources, see
+ * {@link security.annotation.RestrictedResource}.
+ */
+public interface RestrictedResourcesProvider {
+
+    /**
+     * Gets the handler checking access to named resources.
+     *
+     * @return the restricted resources handler
+     */
+    RestrictedResourcesHandler getRestrictedResourcesHandler();
+}
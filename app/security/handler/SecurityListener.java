@@ -0,0 +1,57 @@
+package security.handler;
+
+import security.AclManaged;
+import security.SecurityPlan;
+import security.role.RoleHolder;
+
+/**
+ * Listener notified by {@link security.Security} about security checks, e.g. to trace access checks or to profile them.
+ * Listeners are configured with {@link security.SecurityConfig#LISTENERS_KEY} or registered with
+ * {@link security.Security#addListener(SecurityListener)}. Nothing is measured nor allocated for listeners when none
+ * is registered.
+ * <p/>
+ * Listeners are called on the thread executing the check, which may be a worker thread of parallel access checks, so
+ * they must be thread safe. Exceptions thrown by listeners are logged and do not affect checks. Extend
+ * {@link SecurityListenerAdapter} to receive only some of events.
+ */
+public interface SecurityListener {
+
+    /**
+     * Called when checks of secured method start.
+     *
+     * @param plan the plan of invoked method
+     * @param startTime the value of {@link System#nanoTime()} at start of checks
+     */
+    void onCheckStart(SecurityPlan plan, long startTime);
+
+    /**
+     * Called when current role holder was resolved.
+     *
+     * @param roleHolder the role holder, null if there is no logged user
+     * @param duration the time of resolving in nanoseconds
+     */
+    void onRoleHolderResolved(RoleHolder roleHolder, long duration);
+
+    /**
+     * Called for each access decision of {@link AccessHandler}. Objects checked in batch are reported one by one with
+     * duration of the whole batch.
+     *
+     * @param roleHolder the role holder
+     * @param contextObject the checked object
+     * @param accessMask the mask of checked access types, see
+     *            {@link security.annotation.Access.AccessType#toMask(security.annotation.Access.AccessType...)}
+     * @param result the access result
+     * @param duration the time of the check in nanoseconds
+     */
+    void onAccessDecision(RoleHolder roleHolder, AclManaged contextObject, int accessMask, AccessResult result,
+            long duration);
+
+    /**
+     * Called before access failure of secured method is reported to {@link SecurityHandler}.
+     *
+     * @param plan the plan of invoked method
+     * @param deniedObjects the objects access to which was denied, empty if a role or resource check failed
+     * @param time the value of {@link System#nanoTime()} at failure
+     */
+    void onAccessFailure(SecurityPlan plan, AclManaged[] deniedObjects, long time);
+}
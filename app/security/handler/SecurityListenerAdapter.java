@@ -0,0 +1,24 @@
+package security.handler;
+
+import security.AclManaged;
+import security.SecurityPlan;
+import security.role.RoleHolder;
+
+/**
+ * {@link SecurityListener} ignoring all events, extend it to receive only some of them.
+ */
+public abstract class SecurityListenerAdapter implements SecurityListener {
+
+    public void onCheckStart(SecurityPlan plan, long startTime) {
+    }
+
+    public void onRoleHolderResolved(RoleHolder roleHolder, long duration) {
+    }
+
+    public void onAccessDecision(RoleHolder roleHolder, AclManaged contextObject, int accessMask, AccessResult result,
+            long duration) {
+    }
+
+    public void onAccessFailure(SecurityPlan plan, AclManaged[] deniedObjects, long time) {
+    }
+}
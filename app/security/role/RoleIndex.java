@@ -0,0 +1,75 @@
+package security.role;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Global registry interning role names into small integer ids used as bit positions of {@link RoleMask}.
+ * Ids are assigned on first use and never change while the application is running. Only roles required by the
+ * application (annotations, tags, {@link security.SecurityConfig#ROLES_KEY}) are interned, roles of role holders
+ * are only looked up, so role names coming from user data do not grow the registry.
+ */
+public final class RoleIndex {
+
+    private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+    private static int nextId = 0;
+
+    private static volatile int version = 0;
+
+    private RoleIndex() {
+    }
+
+    /**
+     * Gets the id of role with given name, assigning new one if the name is seen for the first time.
+     *
+     * @param roleName the role name
+     * @return the role id
+     */
+    public static int idOf(String roleName) {
+        Integer id = ids.get(roleName);
+
+        if (id == null) {
+            synchronized (ids) {
+                id = ids.get(roleName);
+                if (id == null) {
+                    id = nextId++;
+                    ids.put(roleName, id);
+                    version++;
+                }
+            }
+        }
+
+        return id;
+    }
+
+    /**
+     * Gets the id of role with given name if it was already interned.
+     *
+     * @param roleName the role name
+     * @return the role id, -1 if no role with such name is required by the application
+     */
+    public static int find(String roleName) {
+        Integer id = ids.get(roleName);
+
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Gets the version of the registry, changed whenever a new role name is interned.
+     *
+     * @return the version
+     */
+    public static int version() {
+        return version;
+    }
+
+    /**
+     * Gets the number of interned role names.
+     *
+     * @return the size
+     */
+    public static int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,193 @@
+package security.role;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable set of roles represented as bitmask of ids from {@link RoleIndex}. Role tests are done with a single
+ * bitwise operation per 64 roles instead of comparing role names. Roles of role holders which are not required by the
+ * application are left out of the mask, as they can not match any role test.
+ */
+public final class RoleMask {
+
+    public static final RoleMask EMPTY = new RoleMask(new long[0], -1);
+
+    private final long[] words;
+
+    /**
+     * Version of {@link RoleIndex} when the mask was created, -1 if no role was left out of the mask.
+     */
+    private final int version;
+
+    private RoleMask(long[] words, int version) {
+        this.words = words;
+        this.version = version;
+    }
+
+    /**
+     * Creates mask of roles with given names.
+     *
+     * @param roleNames the role names
+     * @return the role mask
+     */
+    public static RoleMask of(String... roleNames) {
+        return of(Arrays.asList(roleNames));
+    }
+
+    /**
+     * Creates mask of roles with given names.
+     *
+     * @param roleNames the role names
+     * @return the role mask
+     */
+    public static RoleMask of(Collection<String> roleNames) {
+        if (roleNames.isEmpty()) {
+            return EMPTY;
+        }
+
+        int[] ids = new int[roleNames.size()];
+        int i = 0;
+        for (String roleName : roleNames) {
+            ids[i++] = roleName != null ? RoleIndex.idOf(roleName) : -1;
+        }
+
+        return of(ids, -1);
+    }
+
+    /**
+     * Creates mask of all roles of given role holder. Roles are read once, so the mask can be reused without
+     * touching possibly lazy loaded role collection again, as long as it is {@link #isCurrent()}.
+     *
+     * @param roleHolder the role holder
+     * @return the role mask, empty if role holder is null
+     */
+    public static RoleMask of(RoleHolder roleHolder) {
+        if (roleHolder == null) {
+            return EMPTY;
+        }
+
+        List<? extends Role> roles = roleHolder.getRoles();
+        if (roles == null || roles.isEmpty()) {
+            return EMPTY;
+        }
+
+        int version = RoleIndex.version();
+        boolean unknownRoles = false;
+        int[] ids = new int[roles.size()];
+        int i = 0;
+        for (Role role : roles) {
+            String roleName = role.getRoleName();
+            ids[i] = roleName != null ? RoleIndex.find(roleName) : -1;
+            unknownRoles |= roleName != null && ids[i] < 0;
+            i++;
+        }
+
+        return of(ids, unknownRoles ? version : -1);
+    }
+
+    private static RoleMask of(int[] ids, int version) {
+        int maxId = -1;
+        for (int id : ids) {
+            maxId = Math.max(maxId, id);
+        }
+        if (maxId < 0) {
+            return version < 0 ? EMPTY : new RoleMask(new long[0], version);
+        }
+
+        long[] words = new long[(maxId >> 6) + 1];
+        for (int id : ids) {
+            if (id >= 0) {
+                words[id >> 6] |= 1L << id;
+            }
+        }
+
+        return new RoleMask(words, version);
+    }
+
+    /**
+     * Checks if the mask still has all roles it was created of. Mask of role holder with roles not required by the
+     * application is outdated once any new role is required, and has to be created again.
+     *
+     * @return true, if the mask is up to date
+     */
+    public boolean isCurrent() {
+        return version < 0 || version == RoleIndex.version();
+    }
+
+    /**
+     * Checks if this mask has at least one role of the other mask.
+     *
+     * @param other the other mask
+     * @return true, if masks have common role
+     */
+    public boolean intersects(RoleMask other) {
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if this mask has all roles of the other mask.
+     *
+     * @param other the other mask
+     * @return true, if all roles of other mask are present in this mask
+     */
+    public boolean containsAll(RoleMask other) {
+        for (int i = 0; i < other.words.length; i++) {
+            long word = i < words.length ? words[i] : 0L;
+            if ((other.words[i] & ~word) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if there is no role in this mask.
+     *
+     * @return true, if is empty
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof RoleMask)) {
+            return false;
+        }
+
+        RoleMask other = (RoleMask) obj;
+        return containsAll(other) && other.containsAll(this);
+    }
+
+    @Override
+    public int hashCode() {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + (int) (words[i] ^ (words[i] >>> 32));
+        }
+        return hash;
+    }
+}
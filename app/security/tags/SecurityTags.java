@@ -0,0 +1,463 @@
+package security.tags;
+
+import groovy.lang.Closure;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import play.templates.FastTags;
+import play.templates.GroovyTemplate.ExecutableTemplate;
+import play.templates.JavaExtensions;
+import play.templates.Template;
+import security.AclManaged;
+import security.Security;
+import security.SecurityConfig;
+import security.annotation.Access.AccessType;
+import security.cache.LruCache;
+import security.role.RoleMask;
+
+/**
+ * Security template tags. Arguments of tags (roles, access types) are parsed once per call site in template and
+ * reused while the same values are passed, role checks use role mask of current {@link security.SecurityContext}.
+ * <p/>
+ * Examples:
+ * <pre>
+ * #{security.roleRequired roles: ['ADMIN', 'USER']}...#{/security.roleRequired}
+ * #{security.restrict roles: [['ADMIN'], ['USER', 'EDITOR']]}...#{/security.restrict}
+ * #{security.anyRole}...#{/security.anyRole}
+ * #{security.access contextObject: document, accessTypes: ['WRITE']}...#{/security.access}
+ * #{security.restrictedResource resourceKeys: ['reports']}...#{/security.restrictedResource}
+ * #{security.list items: documents, as: 'document', permissions: ['WRITE']}${document_canWrite}#{/security.list}
+ * </pre>
+ * <p/>
+ * Body of roleRequired and anyRole tags with <code>cache: true</code> is rendered once per set of roles of users and
+ * then taken from in-memory cache, see {@link SecurityConfig#FRAGMENT_CACHE_SIZE_KEY}. Use it only for bodies which
+ * depend on roles of user and not on the user itself, e.g. menus.
+ */
+@FastTags.Namespace("security")
+public class SecurityTags extends FastTags {
+
+    private static final ConcurrentMap<CallSite, ParsedArgument> parsedArguments =
+            new ConcurrentHashMap<CallSite, ParsedArgument>();
+
+    private static volatile LruCache<FragmentKey, String> fragments;
+
+    private static final ArgumentParser<Integer> ACCESS_MASK = new ArgumentParser<Integer>() {
+        public Integer parse(Object value) {
+            if (value == null) {
+                return (int) AccessType.READ.getCode();
+            }
+            if (value instanceof List) {
+                return Security.getInstance().toAccessMask((List<?>) value);
+            }
+            if (value instanceof AccessType) {
+                return (int) ((AccessType) value).getCode();
+            }
+            return (int) Security.getInstance().toAccess(value.toString()).getCode();
+        }
+    };
+
+    private static final ArgumentParser<AccessType[]> ACCESS_TYPES = new ArgumentParser<AccessType[]>() {
+        public AccessType[] parse(Object value) {
+            if (value == null) {
+                return new AccessType[0];
+            }
+            if (value instanceof List) {
+                return Security.getInstance().toAccess((List<?>) value);
+            }
+            if (value instanceof AccessType) {
+                return new AccessType[] {(AccessType) value};
+            }
+            return new AccessType[] {Security.getInstance().toAccess(value.toString())};
+        }
+    };
+
+    private static final ArgumentParser<List<String>> RESOURCE_NAMES = new ArgumentParser<List<String>>() {
+        @SuppressWarnings("unchecked")
+        public List<String> parse(Object value) {
+            if (value == null) {
+                throw new IllegalArgumentException("Resource keys must be specified");
+            }
+            if (value instanceof Collection) {
+                return Collections.unmodifiableList(new ArrayList<String>((Collection<String>) value));
+            }
+            return Collections.singletonList(value.toString());
+        }
+    };
+
+    private static final ArgumentParser<RoleMask> ROLES = new ArgumentParser<RoleMask>() {
+        public RoleMask parse(Object value) {
+            return toRoleMask(value);
+        }
+    };
+
+    private static final ArgumentParser<RoleMask[]> ROLE_SETS = new ArgumentParser<RoleMask[]>() {
+        public RoleMask[] parse(Object value) {
+            Collection<?> roleSets = (Collection<?>) value;
+            RoleMask[] masks = new RoleMask[roleSets.size()];
+
+            int i = 0;
+            for (Object roleSet : roleSets) {
+                masks[i++] = toRoleMask(roleSet);
+            }
+
+            return masks;
+        }
+    };
+
+    /**
+     * Renders body if current user has access for context object.
+     */
+    public static void _access(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template, int fromLine) {
+        int accessMask = parse(template, fromLine, "accessTypes", args.get("accessTypes"), ACCESS_MASK);
+
+        if (Security.getInstance().hasAccess((AclManaged) args.get("contextObject"), accessMask)) {
+            renderBody(body, out);
+        }
+    }
+
+    /**
+     * Renders body for each of items which current user has access for. Access to all items is checked with a single
+     * batch check. Body gets variables:
+     * <ul>
+     * <li><code>as</code> (default <code>_</code>) - the item</li>
+     * <li><code>as_index</code>, <code>as_isFirst</code>, <code>as_isLast</code> - position among rendered items</li>
+     * <li><code>as_canRead</code>, <code>as_canWrite</code>... - access to the item for each of
+     * <code>permissions</code> access types, each checked with a single batch check</li>
+     * </ul>
+     */
+    public static void _list(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template, int fromLine) {
+        Object items = args.get("items");
+        if (items == null || body == null) {
+            return;
+        }
+
+        String as = args.get("as") != null ? args.get("as").toString() : "_";
+        int accessMask = parse(template, fromLine, "accessTypes", args.get("accessTypes"), ACCESS_MASK);
+        AccessType[] permissions = parse(template, fromLine, "permissions", args.get("permissions"), ACCESS_TYPES);
+
+        List<AclManaged> accessible = Security.getInstance().filterAccessible(toList(items),
+                AccessType.fromMask(accessMask));
+
+        BitSet[] allowed = new BitSet[permissions.length];
+        String[] flags = new String[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            allowed[i] = Security.getInstance().checkAccessBatch(accessible, permissions[i]);
+            String name = permissions[i].name();
+            flags[i] = as + "_can" + name.charAt(0) + name.substring(1).toLowerCase();
+        }
+
+        int size = accessible.size();
+        for (int i = 0; i < size; i++) {
+            body.setProperty(as, accessible.get(i));
+            body.setProperty(as + "_index", i + 1);
+            body.setProperty(as + "_isFirst", i == 0);
+            body.setProperty(as + "_isLast", i == size - 1);
+            for (int j = 0; j < permissions.length; j++) {
+                body.setProperty(flags[j], allowed[j].get(i));
+            }
+
+            out.print(JavaExtensions.toString(body));
+        }
+    }
+
+    /**
+     * Renders body if current user has access to named resources. Use <code>allowUnspecified: true</code> to render
+     * body also when access to resources is not specified.
+     */
+    @SuppressWarnings("unchecked")
+    public static void _restrictedResource(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template,
+            int fromLine) {
+        List<String> resourceNames = parse(template, fromLine, "resourceKeys", args.get("resourceKeys"), RESOURCE_NAMES);
+        Object allowUnspecified = args.get("allowUnspecified");
+
+        if (Security.getInstance().checkRestrictedResource(resourceNames,
+                (Map<String, Object>) args.get("resourceParameters"),
+                Boolean.TRUE.equals(allowUnspecified) || "true".equals(allowUnspecified))) {
+            renderBody(body, out);
+        }
+    }
+
+    /**
+     * Renders body if there is logged user.
+     */
+    public static void _anyRole(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template, int fromLine) {
+        if (Security.getInstance().isRoleHolderPresent()) {
+            renderBody("anyRole", args, body, out, template, fromLine);
+        }
+    }
+
+    /**
+     * Renders body if there is logged user.
+     */
+    public static void _roleHolderPresent(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template,
+            int fromLine) {
+        if (Security.getInstance().isRoleHolderPresent()) {
+            renderBody(body, out);
+        }
+    }
+
+    /**
+     * Renders body if current user has at least one of roles.
+     */
+    public static void _roleRequired(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template,
+            int fromLine) {
+        RoleMask roles = parse(template, fromLine, "roles", args.get("roles"), ROLES);
+
+        if (Security.getInstance().hasAnyRole(roles)) {
+            renderBody("roleRequired", args, body, out, template, fromLine);
+        }
+    }
+
+    /**
+     * Renders body if current user has all roles of at least one of role lists.
+     */
+    public static void _restrict(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template, int fromLine) {
+        RoleMask[] roleSets = parse(template, fromLine, "roles", args.get("roles"), ROLE_SETS);
+        Security security = Security.getInstance();
+
+        for (RoleMask roles : roleSets) {
+            if (security.hasAllRoles(roles)) {
+                renderBody(body, out);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops all cached template fragments and parsed tag arguments, e.g. when templates are reloaded. The cache of
+     * fragments is created again with current {@link SecurityConfig}.
+     */
+    public static void clearFragmentCache() {
+        fragments = null;
+        parsedArguments.clear();
+    }
+
+    private static void renderBody(Closure body, PrintWriter out) {
+        if (body != null) {
+            out.print(JavaExtensions.toString(body));
+        }
+    }
+
+    /**
+     * Renders body, taking it from cache of fragments by role set of current user if <code>cache</code> argument is
+     * true.
+     */
+    private static void renderBody(String tagName, Map<?, ?> args, Closure body, PrintWriter out,
+            ExecutableTemplate template, int fromLine) {
+        Object cache = args.get("cache");
+        if (body == null || template == null || template.template == null
+                || !(Boolean.TRUE.equals(cache) || "true".equals(cache))) {
+            renderBody(body, out);
+            return;
+        }
+
+        Security security = Security.getInstance();
+        FragmentKey key = new FragmentKey(tagName, template.template, fromLine, body,
+                security.getRoleMask(security.getRoleHolder()));
+        LruCache<FragmentKey, String> cached = getFragments();
+
+        String fragment = cached.get(key);
+        if (fragment == null) {
+            fragment = JavaExtensions.toString(body);
+            cached.put(key, fragment);
+        }
+
+        out.print(fragment);
+    }
+
+    private static LruCache<FragmentKey, String> getFragments() {
+        LruCache<FragmentKey, String> cached = fragments;
+        if (cached == null) {
+            SecurityConfig config = SecurityConfig.get();
+            cached = new LruCache<FragmentKey, String>(config.getFragmentCacheSize(), config.getFragmentCacheTtl(),
+                    TimeUnit.SECONDS);
+            fragments = cached;
+        }
+
+        return cached;
+    }
+
+    /**
+     * Gets the parsed value of argument of tag at given call site. The value is parsed again only when it is not equal
+     * to the value parsed before, e.g. when it is not a literal. A copy of the value is kept, so a list (e.g. of role
+     * lists) changed after it was parsed is parsed again.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T parse(ExecutableTemplate template, int fromLine, String name, Object value,
+            ArgumentParser<T> parser) {
+        if (template == null || template.template == null) {
+            return parser.parse(value);
+        }
+
+        CallSite callSite = new CallSite(template.template.name, fromLine, name);
+        ParsedArgument parsed = parsedArguments.get(callSite);
+        if (parsed == null || !isEqual(value, parsed.value)) {
+            parsed = new ParsedArgument(copyOf(value), parser.parse(value));
+            parsedArguments.put(callSite, parsed);
+        }
+
+        return (T) parsed.parsed;
+    }
+
+    private static boolean isEqual(Object value, Object parsedValue) {
+        if (value instanceof Object[] && parsedValue instanceof Object[]) {
+            return Arrays.equals((Object[]) value, (Object[]) parsedValue);
+        }
+        return value == null ? parsedValue == null : value.equals(parsedValue);
+    }
+
+    private static Object copyOf(Object value) {
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<Object>();
+            for (Object item : (List<?>) value) {
+                copy.add(copyOf(item));
+            }
+            return copy;
+        }
+        if (value instanceof Set) {
+            Set<Object> copy = new HashSet<Object>();
+            for (Object item : (Set<?>) value) {
+                copy.add(copyOf(item));
+            }
+            return copy;
+        }
+        if (value instanceof Object[]) {
+            return ((Object[]) value).clone();
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AclManaged> toList(Object items) {
+        if (items instanceof List) {
+            return (List<AclManaged>) items;
+        }
+        if (items instanceof Collection) {
+            return new ArrayList<AclManaged>((Collection<AclManaged>) items);
+        }
+        if (items instanceof AclManaged[]) {
+            return Arrays.asList((AclManaged[]) items);
+        }
+        throw new IllegalArgumentException("Items must be a collection or an array of AclManaged objects: " + items);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RoleMask toRoleMask(Object roles) {
+        if (roles == null) {
+            throw new IllegalArgumentException("Roles must be specified");
+        }
+        if (roles instanceof Collection) {
+            return RoleMask.of((Collection<String>) roles);
+        }
+        return RoleMask.of(roles.toString());
+    }
+
+    private interface ArgumentParser<T> {
+
+        T parse(Object value);
+    }
+
+    private static final class ParsedArgument {
+
+        private final Object value;
+
+        private final Object parsed;
+
+        ParsedArgument(Object value, Object parsed) {
+            this.value = value;
+            this.parsed = parsed;
+        }
+    }
+
+    private static final class CallSite {
+
+        private final String templateName;
+
+        private final int line;
+
+        private final String argumentName;
+
+        CallSite(String templateName, int line, String argumentName) {
+            this.templateName = templateName;
+            this.line = line;
+            this.argumentName = argumentName;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * templateName.hashCode() + line) + argumentName.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CallSite)) {
+                return false;
+            }
+
+            CallSite other = (CallSite) obj;
+            return line == other.line && templateName.equals(other.templateName)
+                    && argumentName.equals(other.argumentName);
+        }
+    }
+
+    /**
+     * Key of cached fragment: tag, template, its source, line of tag, body and role set of user. Only names are kept,
+     * so the key does not hold template classes of old class loader after reload. Groovy compiles each tag body of
+     * template to its own closure class, so the name of body class tells apart tags on the same line, and the hash of
+     * source tells apart versions of template edited in dev mode.
+     */
+    private static final class FragmentKey {
+
+        private final String tagName;
+
+        private final String templateName;
+
+        private final int sourceHash;
+
+        private final int line;
+
+        private final String bodyName;
+
+        private final RoleMask roles;
+
+        FragmentKey(String tagName, Template template, int line, Closure body, RoleMask roles) {
+            this.tagName = tagName;
+            this.templateName = template.name;
+            this.sourceHash = template.source != null ? template.source.hashCode() : 0;
+            this.line = line;
+            this.bodyName = body.getClass().getName();
+            this.roles = roles;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 31 * tagName.hashCode() + templateName.hashCode();
+            hash = 31 * (31 * (31 * hash + sourceHash) + line) + bodyName.hashCode();
+            return 31 * hash + roles.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FragmentKey)) {
+                return false;
+            }
+
+            FragmentKey other = (FragmentKey) obj;
+            return line == other.line && sourceHash == other.sourceHash && tagName.equals(other.tagName)
+                    && templateName.equals(other.templateName) && bodyName.equals(other.bodyName)
+                    && roles.equals(other.roles);
+        }
+    }
+}
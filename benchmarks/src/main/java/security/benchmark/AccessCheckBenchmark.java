@@ -0,0 +1,113 @@
+package security.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import security.AclManaged;
+import security.Security;
+import security.annotation.Access.AccessType;
+
+/**
+ * Access checks used by templates and controllers, see {@link Security#hasAccess(AclManaged, AccessType[])}, and
+ * conversions of access types given as lists, see {@link Security#toAccess(List)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessCheckBenchmark {
+
+    Security security;
+
+    StubDocument document;
+
+    List<StubDocument> documents;
+
+    AccessType[] accessTypes;
+
+    int accessMask;
+
+    List<AccessType> accessTypeList;
+
+    List<String> accessNames;
+
+    @Setup
+    public void setUp() {
+        security = Benchmarks.setUp(false);
+        StubSecurityHandler.setRoleHolder(new StubRoleHolder(4));
+
+        document = new StubDocument(1);
+        documents = new ArrayList<StubDocument>();
+        for (int i = 0; i < 10; i++) {
+            documents.add(new StubDocument(i));
+        }
+
+        accessTypes = new AccessType[] {AccessType.READ, AccessType.WRITE};
+        accessMask = AccessType.toMask(accessTypes);
+        accessTypeList = Arrays.asList(accessTypes);
+        accessNames = Arrays.asList("read", "write");
+    }
+
+    @Benchmark
+    public boolean hasAccessTypes() {
+        return security.hasAccess(document, accessTypes);
+    }
+
+    @Benchmark
+    public boolean hasAccessMask() {
+        return security.hasAccess(document, accessMask);
+    }
+
+    @Benchmark
+    public boolean hasAccessList() {
+        return security.hasAccess(document, accessTypeList);
+    }
+
+    @Benchmark
+    public boolean hasAccessType() {
+        return security.hasAccess(document, AccessType.READ);
+    }
+
+    @Benchmark
+    public List<StubDocument> filterAccessible() {
+        return security.filterAccessible(documents, accessTypes);
+    }
+
+    @Benchmark
+    public AccessType[] toAccessFromTypes() {
+        return security.toAccess(accessTypeList);
+    }
+
+    @Benchmark
+    public AccessType[] toAccessFromNames() {
+        return security.toAccess(accessNames);
+    }
+
+    @Benchmark
+    public int toAccessMaskFromNames() {
+        return security.toAccessMask(accessNames);
+    }
+
+    /**
+     * Access types given as names in templates when argument of tag is not parsed, ex. <code>accessTypes: ['WRITE']</code>.
+     */
+    @Benchmark
+    public boolean hasAccessFromNames() {
+        return security.hasAccess(document, security.toAccessMask(accessNames));
+    }
+}
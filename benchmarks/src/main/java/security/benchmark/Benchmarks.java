@@ -0,0 +1,46 @@
+package security.benchmark;
+
+import java.util.Properties;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import security.Security;
+import security.SecurityConfig;
+
+/**
+ * Runs benchmarks with allocation rates reported by GC profiler. Accepts the same arguments as JMH, ex.
+ * <code>java -jar benchmarks.jar SecurityChecks -t 4</code>.
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+
+    /**
+     * Configures security with {@link StubSecurityHandler} as security.handler.
+     *
+     * @param metrics true, if security metrics should be recorded
+     * @return the security
+     */
+    static Security setUp(boolean metrics) {
+        Properties configuration = new Properties();
+        configuration.setProperty(Security.SECURITY_HANDLER_KEY, StubSecurityHandler.class.getName());
+        configuration.setProperty(SecurityConfig.METRICS_KEY, String.valueOf(metrics));
+        SecurityConfig.reload(configuration);
+
+        return Security.getInstance();
+    }
+}
@@ -0,0 +1,10 @@
+package security.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * {@link AccessCheckBenchmark} run by as many threads as there are processors.
+ */
+@Threads(Threads.MAX)
+public class ConcurrentAccessCheckBenchmark extends AccessCheckBenchmark {
+}
@@ -0,0 +1,11 @@
+package security.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * {@link SecurityChecksBenchmark} run by as many threads as there are processors, shows contention on shared state
+ * of checks, ex. metrics and caches.
+ */
+@Threads(Threads.MAX)
+public class ConcurrentSecurityChecksBenchmark extends SecurityChecksBenchmark {
+}
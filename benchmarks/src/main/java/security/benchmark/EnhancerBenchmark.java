@@ -0,0 +1,89 @@
+package security.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import play.Play;
+import play.classloading.ApplicationClasses;
+import play.classloading.ApplicationClasses.ApplicationClass;
+import play.modules.security.SecurityEnhancer;
+import play.vfs.VirtualFile;
+
+/**
+ * Enhancement of application classes on startup, see <code>SecurityEnhancer.enhanceThisClass</code>, over a synthetic
+ * set of classes: copies of {@link SecuredService}, {@link UnsecuredService} and {@link PlainService} renamed by
+ * Javassist. Each operation enhances the whole set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnhancerBenchmark {
+
+    /**
+     * Number of classes in the set.
+     */
+    @Param({"200"})
+    int classCount;
+
+    /**
+     * Every n-th class of the set is secured, every n-th following it references security annotations without
+     * being secured, remaining classes do not reference them.
+     */
+    @Param({"5"})
+    int securedEvery;
+
+    List<ApplicationClass> classes;
+
+    SecurityEnhancer enhancer;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (Play.classes == null) {
+            Play.javaPath = new ArrayList<VirtualFile>();
+            Play.classes = new ApplicationClasses();
+        }
+
+        ClassPool pool = new ClassPool(true);
+        classes = new ArrayList<ApplicationClass>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            Class<?> template = i % securedEvery == 0 ? SecuredService.class
+                    : i % securedEvery == 1 ? UnsecuredService.class : PlainService.class;
+            String name = "benchmark." + template.getSimpleName() + i;
+            CtClass clazz = pool.getAndRename(template.getName(), name);
+
+            ApplicationClass ac = new ApplicationClass(name);
+            ac.javaByteCode = clazz.toBytecode();
+            classes.add(ac);
+        }
+
+        enhancer = new SecurityEnhancer();
+    }
+
+    @Benchmark
+    public void enhanceThisClass(Blackhole blackhole) throws Exception {
+        for (ApplicationClass ac : classes) {
+            ac.enhancedByteCode = ac.javaByteCode;
+            enhancer.enhanceThisClass(ac);
+            blackhole.consume(ac.enhancedByteCode);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package security.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class not referencing security annotations, the template of classes skipped by {@link EnhancerBenchmark} before
+ * they are parsed.
+ */
+public class PlainService {
+
+    private final List<StubDocument> documents = new ArrayList<StubDocument>();
+
+    public void add(StubDocument document) {
+        documents.add(document);
+    }
+
+    public StubDocument find(long id) {
+        for (StubDocument document : documents) {
+            if (document.getId() == id) {
+                return document;
+            }
+        }
+        return null;
+    }
+
+    public int count() {
+        return documents.size();
+    }
+}
@@ -0,0 +1,109 @@
+package security.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import security.Security;
+import security.SecurityContext;
+import security.role.RoleMask;
+
+/**
+ * Role checks used by templates and controllers, see {@link Security#hasRole(List)}, with small and large sets of
+ * roles of the user and of required roles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoleCheckBenchmark {
+
+    /**
+     * Number of roles of the user.
+     */
+    @Param({"2", "64"})
+    int roleCount;
+
+    Security security;
+
+    List<String> smallRoles;
+
+    List<String> largeRoles;
+
+    RoleMask smallMask;
+
+    RoleMask largeMask;
+
+    @Setup
+    public void setUp() {
+        security = Benchmarks.setUp(false);
+        StubSecurityHandler.setRoleHolder(new StubRoleHolder(roleCount));
+
+        smallRoles = Arrays.asList("ADMIN", StubRoleHolder.roleName(roleCount - 1));
+
+        largeRoles = new ArrayList<String>();
+        for (int i = 0; i < 31; i++) {
+            largeRoles.add("OTHER_" + i);
+        }
+        largeRoles.add(StubRoleHolder.roleName(roleCount - 1));
+
+        smallMask = RoleMask.of(smallRoles);
+        largeMask = RoleMask.of(largeRoles);
+    }
+
+    @Benchmark
+    public boolean hasRoleSmall() {
+        return security.hasRole(smallRoles);
+    }
+
+    @Benchmark
+    public boolean hasRoleLarge() {
+        return security.hasRole(largeRoles);
+    }
+
+    @Benchmark
+    public boolean hasRolesSmall() {
+        return security.hasRoles(smallRoles);
+    }
+
+    @Benchmark
+    public boolean hasAnyRoleSmallMask() {
+        return security.hasAnyRole(smallMask);
+    }
+
+    @Benchmark
+    public boolean hasAnyRoleLargeMask() {
+        return security.hasAnyRole(largeMask);
+    }
+
+    /**
+     * Several checks in one invocation share role holder and its roles resolved by {@link SecurityContext}.
+     */
+    @Benchmark
+    public void hasRoleThreeTimesPerInvocation(Blackhole blackhole) {
+        SecurityContext context = SecurityContext.open();
+        try {
+            blackhole.consume(security.hasRole(smallRoles));
+            blackhole.consume(security.hasRole(largeRoles));
+            blackhole.consume(security.hasRoles(smallRoles));
+        } finally {
+            context.close();
+        }
+    }
+}
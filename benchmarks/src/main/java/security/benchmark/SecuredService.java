@@ -0,0 +1,55 @@
+package security.benchmark;
+
+import java.util.List;
+
+import security.annotation.Access;
+import security.annotation.Access.AccessType;
+import security.annotation.AnyRole;
+import security.annotation.RestrictedResource;
+import security.annotation.RoleRequired;
+import security.annotation.Unsecured;
+
+/**
+ * Methods with each shape of security annotations. Benchmarks check plans of its methods directly, the class itself
+ * is not enhanced. It is also the template of secured classes enhanced by {@link EnhancerBenchmark}.
+ */
+public class SecuredService {
+
+    @AnyRole
+    public void anyRole() {
+    }
+
+    @RoleRequired({"ROLE_0", "ROLE_1"})
+    public void roleRequired() {
+    }
+
+    @RestrictedResource(name = "reports")
+    public void restrictedResource() {
+    }
+
+    public void access(@Access(AccessType.READ) StubDocument document) {
+    }
+
+    public void accessTwo(@Access(AccessType.READ) StubDocument document,
+            @Access(AccessType.WRITE) StubDocument target) {
+    }
+
+    public void accessThree(@Access(AccessType.READ) StubDocument document,
+            @Access(AccessType.WRITE) StubDocument target, @Access(AccessType.DELETE) StubDocument removed) {
+    }
+
+    public void accessById(@Access(value = AccessType.READ, type = StubDocument.class) Long id) {
+    }
+
+    public void accessList(@Access(AccessType.READ) List<StubDocument> documents) {
+    }
+
+    @RestrictedResource(name = "reports")
+    @RoleRequired({"ROLE_0"})
+    public void combined(@Access({AccessType.READ, AccessType.WRITE}) StubDocument document) {
+    }
+
+    @Unsecured
+    public void unsecured() {
+    }
+}
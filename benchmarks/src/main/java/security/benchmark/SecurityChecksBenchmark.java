@@ -0,0 +1,139 @@
+package security.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import security.Security;
+import security.SecurityPlan;
+
+/**
+ * Checks done by enhanced methods, see {@link Security#executeSecurityChecks(SecurityPlan)}, for each shape of
+ * security annotations of {@link SecuredService}. Access is always allowed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityChecksBenchmark {
+
+    @Param({"false", "true"})
+    boolean metrics;
+
+    Security security;
+
+    SecurityPlan anyRole;
+
+    SecurityPlan roleRequired;
+
+    SecurityPlan restrictedResource;
+
+    SecurityPlan access;
+
+    SecurityPlan accessTwo;
+
+    SecurityPlan accessThree;
+
+    SecurityPlan accessById;
+
+    SecurityPlan accessList;
+
+    SecurityPlan combined;
+
+    SecurityPlan unsecured;
+
+    StubDocument document;
+
+    List<StubDocument> documents;
+
+    @Setup
+    public void setUp() {
+        security = Benchmarks.setUp(metrics);
+        StubSecurityHandler.setRoleHolder(new StubRoleHolder(4));
+
+        anyRole = plan("anyRole");
+        roleRequired = plan("roleRequired");
+        restrictedResource = plan("restrictedResource");
+        access = plan("access", StubDocument.class);
+        accessTwo = plan("accessTwo", StubDocument.class, StubDocument.class);
+        accessThree = plan("accessThree", StubDocument.class, StubDocument.class, StubDocument.class);
+        accessById = plan("accessById", Long.class);
+        accessList = plan("accessList", List.class);
+        combined = plan("combined", StubDocument.class);
+        unsecured = plan("unsecured");
+
+        document = new StubDocument(1);
+        documents = new ArrayList<StubDocument>();
+        for (int i = 0; i < 10; i++) {
+            documents.add(new StubDocument(i));
+        }
+    }
+
+    private static SecurityPlan plan(String methodName, Class<?>... paramTypes) {
+        return SecurityPlan.forMethod(SecuredService.class, methodName, paramTypes);
+    }
+
+    @Benchmark
+    public void anyRole() {
+        security.executeSecurityChecks(anyRole);
+    }
+
+    @Benchmark
+    public void roleRequired() {
+        security.executeSecurityChecks(roleRequired);
+    }
+
+    @Benchmark
+    public void restrictedResource() {
+        security.executeSecurityChecks(restrictedResource);
+    }
+
+    @Benchmark
+    public void access() {
+        security.executeSecurityChecks(access, document);
+    }
+
+    @Benchmark
+    public void accessTwo() {
+        security.executeSecurityChecks(accessTwo, document, document);
+    }
+
+    @Benchmark
+    public void accessThree() {
+        security.executeSecurityChecks(accessThree, new Object[] {document, document, document});
+    }
+
+    @Benchmark
+    public void accessById() {
+        security.executeSecurityChecks(accessById, Long.valueOf(1));
+    }
+
+    @Benchmark
+    public void accessList() {
+        security.executeSecurityChecks(accessList, documents);
+    }
+
+    @Benchmark
+    public void combined() {
+        security.executeSecurityChecks(combined, document);
+    }
+
+    @Benchmark
+    public void unsecured() {
+        security.executeSecurityChecks(unsecured);
+    }
+}
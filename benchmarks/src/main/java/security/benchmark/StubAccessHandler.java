@@ -0,0 +1,27 @@
+package security.benchmark;
+
+import security.AclManaged;
+import security.annotation.Access.AccessType;
+import security.handler.AbstractAccessHandler;
+import security.handler.AccessResult;
+import security.role.RoleHolder;
+
+/**
+ * Access handler allowing any access to documents of logged user without any lookup, so benchmarks measure only
+ * the cost of the module.
+ */
+public class StubAccessHandler extends AbstractAccessHandler {
+
+    public AccessResult checkAccess(RoleHolder roleHolder, AclManaged contextObject, AccessType[] accessTypes) {
+        return checkAccess(roleHolder, contextObject, AccessType.toMask(accessTypes));
+    }
+
+    @Override
+    public AccessResult checkAccess(RoleHolder roleHolder, AclManaged contextObject, int accessMask) {
+        return roleHolder != null && contextObject instanceof StubDocument ? AccessResult.ALLOWED : AccessResult.DENIED;
+    }
+
+    public AclManaged toAclManaged(Object contextObject, Class<? extends AclManaged> type) {
+        return contextObject instanceof Long ? new StubDocument((Long) contextObject) : null;
+    }
+}
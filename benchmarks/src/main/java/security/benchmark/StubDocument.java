@@ -0,0 +1,19 @@
+package security.benchmark;
+
+import security.AclManaged;
+
+/**
+ * Context object of access checks identified by its id.
+ */
+public class StubDocument implements AclManaged {
+
+    private final long id;
+
+    public StubDocument(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
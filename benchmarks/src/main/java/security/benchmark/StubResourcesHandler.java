@@ -0,0 +1,19 @@
+package security.benchmark;
+
+import java.util.List;
+import java.util.Map;
+
+import security.handler.AccessResult;
+import security.handler.RestrictedResourcesHandler;
+import security.role.RoleHolder;
+
+/**
+ * Restricted resources handler allowing access to all resources for logged user.
+ */
+public class StubResourcesHandler implements RestrictedResourcesHandler {
+
+    public AccessResult checkAccess(RoleHolder roleHolder, List<String> resourceNames,
+            Map<String, Object> resourceParameters) {
+        return roleHolder != null ? AccessResult.ALLOWED : AccessResult.DENIED;
+    }
+}
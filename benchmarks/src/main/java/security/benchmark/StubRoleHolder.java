@@ -0,0 +1,51 @@
+package security.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import security.role.Role;
+import security.role.RoleHolder;
+
+/**
+ * Role holder with given number of roles named ROLE_0, ROLE_1 ...
+ */
+public class StubRoleHolder implements RoleHolder {
+
+    private final List<StubRole> roles;
+
+    public StubRoleHolder(int roleCount) {
+        List<StubRole> roles = new ArrayList<StubRole>(roleCount);
+        for (int i = 0; i < roleCount; i++) {
+            roles.add(new StubRole(roleName(i)));
+        }
+        this.roles = Collections.unmodifiableList(roles);
+    }
+
+    public List<? extends Role> getRoles() {
+        return roles;
+    }
+
+    /**
+     * Gets the name of i-th role.
+     *
+     * @param i the index of role
+     * @return the role name
+     */
+    public static String roleName(int i) {
+        return "ROLE_" + i;
+    }
+
+    static class StubRole implements Role {
+
+        private final String roleName;
+
+        StubRole(String roleName) {
+            this.roleName = roleName;
+        }
+
+        public String getRoleName() {
+            return roleName;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package security.benchmark;
+
+import java.lang.reflect.Method;
+
+import security.AclManaged;
+import security.exception.SecurityException;
+import security.handler.AccessHandler;
+import security.handler.RestrictedResourcesHandler;
+import security.handler.RestrictedResourcesProvider;
+import security.handler.SecurityHandler;
+import security.role.RoleHolder;
+
+/**
+ * Security handler of benchmarks configured as security.handler, see {@link Benchmarks#setUp(boolean)}. All threads
+ * share the role holder set by {@link #setRoleHolder(RoleHolder)}.
+ */
+public class StubSecurityHandler implements SecurityHandler, RestrictedResourcesProvider {
+
+    private static volatile RoleHolder roleHolder;
+
+    private final AccessHandler accessHandler = new StubAccessHandler();
+
+    private final RestrictedResourcesHandler resourcesHandler = new StubResourcesHandler();
+
+    /**
+     * Sets the role holder returned to all threads.
+     *
+     * @param roleHolder the role holder, null if there is no logged user
+     */
+    public static void setRoleHolder(RoleHolder roleHolder) {
+        StubSecurityHandler.roleHolder = roleHolder;
+    }
+
+    public void beforeRoleCheck() {
+    }
+
+    public RoleHolder getRoleHolder() {
+        return roleHolder;
+    }
+
+    public void onAccessFailure(Method method, AclManaged... forbiddenObjects) {
+        throw new SecurityException(method.getName());
+    }
+
+    public AccessHandler getAccessHandler() {
+        return accessHandler;
+    }
+
+    public RestrictedResourcesHandler getRestrictedResourcesHandler() {
+        return resourcesHandler;
+    }
+}
@@ -0,0 +1,19 @@
+package security.benchmark;
+
+import security.Security;
+import security.annotation.Access.AccessType;
+
+/**
+ * Class checking access programmatically, without security annotations. It references security.annotation package,
+ * so it is parsed by the enhancer. It is the template of such classes examined by {@link EnhancerBenchmark}.
+ */
+public class UnsecuredService {
+
+    public boolean canEdit(StubDocument document) {
+        return Security.getInstance().hasAccess(document, AccessType.WRITE);
+    }
+
+    public boolean canRead(StubDocument document) {
+        return Security.getInstance().hasAccess(document, AccessType.READ);
+    }
+}
@@ -2,15 +2,19 @@ package security;
 
 import security.exception.SecurityException;
 import security.handler.AccessHandler;
+import security.handler.RestrictedResourcesHandler;
+import security.handler.RestrictedResourcesProvider;
 import security.handler.SecurityHandler;
 import security.role.RoleHolder;
 
 import java.lang.reflect.Method;
 
 
-public class ACLSecurityHandler implements SecurityHandler {
+public class ACLSecurityHandler implements SecurityHandler, RestrictedResourcesProvider {
 
     DynamicResourcesHandler dynamicResourcesHandler = new DynamicResourcesHandler();
+
+    NamedResourcesHandler namedResourcesHandler = new NamedResourcesHandler();
     
     public void beforeRoleCheck() {
     }
@@ -26,4 +30,8 @@ public class ACLSecurityHandler implements SecurityHandler {
     public AccessHandler getAccessHandler() {
         return dynamicResourcesHandler;
     }
+
+    public RestrictedResourcesHandler getRestrictedResourcesHandler() {
+        return namedResourcesHandler;
+    }
 }
@@ -0,0 +1,31 @@
+package security;
+
+import java.util.List;
+import java.util.Map;
+
+import security.handler.AccessResult;
+import security.handler.RestrictedResourcesHandler;
+import security.role.Role;
+import security.role.RoleHolder;
+
+/**
+ * Allows access to "reports" resource for ADMIN role only. Access to other resources is not specified.
+ */
+public class NamedResourcesHandler implements RestrictedResourcesHandler {
+
+    public AccessResult checkAccess(RoleHolder roleHolder, List<String> resourceNames,
+            Map<String, Object> resourceParameters) {
+        if (!resourceNames.contains("reports")) {
+            return AccessResult.NOT_SPECIFIED;
+        }
+
+        if (roleHolder != null) {
+            for (Role role : roleHolder.getRoles()) {
+                if ("ADMIN".equals(role.getRoleName())) {
+                    return AccessResult.ALLOWED;
+                }
+            }
+        }
+        return AccessResult.DENIED;
+    }
+}
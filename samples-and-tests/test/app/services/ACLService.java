@@ -1,5 +1,7 @@
 package services;
 
+import java.util.List;
+
 import security.annotation.Access;
 import security.annotation.Access.AccessType;
 
@@ -17,4 +19,15 @@ public class ACLService {
     public void addDocument(@Access(value = { AccessType.WRITE }, type = Document.class) User user, Document document) {
     }
 
+    public void moveDocument(@Access(AccessType.WRITE) Document document, @Access(AccessType.READ) Document source,
+            @Access(AccessType.WRITE) Document target) {
+    }
+
+    public void copyDocument(@Access(AccessType.READ) Document source, @Access(AccessType.WRITE) Document target,
+            @Access(AccessType.WRITE) Document backup) {
+    }
+
+    public void deleteDocuments(@Access(value = { AccessType.DELETE }, type = Document.class) List<Long> documentIds) {
+    }
+
 }
@@ -0,0 +1,8 @@
+package services;
+
+public class ExtendedRestrictedService extends RestrictedService {
+
+    public void changeMore() {
+    }
+
+}
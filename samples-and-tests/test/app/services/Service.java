@@ -2,6 +2,7 @@ package services;
 
 import security.annotation.RoleRequired;
 import security.annotation.AnyRole;
+import security.annotation.RestrictedResource;
 
 public class Service {
 
@@ -15,6 +16,11 @@ public class Service {
     @RoleRequired({"ADMIN"})
     public void accessForAdminOnly() {
     }
+
+    @AnyRole
+    @RoleRequired({"ADMIN"})
+    public void loggedAccessForAdminOnly() {
+    }
     
     @RoleRequired({"ADMIN", "USER"})
     public void accessForAdminOrUser() {
@@ -23,5 +29,18 @@ public class Service {
     @RoleRequired({"USER"})
     public void accessForUserOnly() {
     }
+
+    @RestrictedResource(name = "reports")
+    public void showReports() {
+    }
+
+    @RestrictedResource(name = "unknown")
+    public void showUnknownResource() {
+    }
+
+    @RestrictedResource(name = "unknown", staticFallback = true)
+    @RoleRequired({"USER"})
+    public void showUnknownResourceForUser() {
+    }
 }
 
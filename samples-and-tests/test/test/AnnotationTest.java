@@ -9,6 +9,7 @@ import play.test.UnitTest;
 import security.Security;
 import security.exception.SecurityException;
 import services.ACLService;
+import services.ExtendedRestrictedService;
 import services.RestrictedService;
 import services.Service;
 
@@ -80,6 +81,14 @@ public class AnnotationTest extends UnitTest {
         restrictedService.changeEverything();
     }
     
+    @Test(expected = SecurityException.class)
+    public void testUserCannotAccessSubclassOfClassForAdminOnly() {
+        User user = mockGetRoleHolder(UserRole.USER);
+        Request.current().args.put(Security.CACHE_PER_REQUEST, user);
+
+        new ExtendedRestrictedService().changeMore();
+    }
+
     @Test(expected = SecurityException.class)
     public void testUserHasNoAccessToObjectsManagedByAdmin() throws java.lang.SecurityException, NoSuchMethodException {
         User user = mockGetRoleHolder(UserRole.USER);
@@ -145,6 +145,75 @@ public class ControllerTest extends FunctionalTest {
                 response.status);
     }
 
+    @Test
+    public void testRestrictedContentIsVisibleByUserInAllRoles() {
+        Request request = newRequest();
+        request.args.put(Security.CACHE_PER_REQUEST, mockGetRoleHolder(UserRole.ADMIN, UserRole.USER));
+        Response response = GET(request, "/showMixedContent");
+
+        assertTrue("User in all roles cannot watch restricted content", response.out.toString().contains(
+                "This is restricted content for admin being user"));
+    }
+
+    @Test
+    public void testRestrictedContentIsNotVisibleByUserInOneRole() {
+        Request request = newRequest();
+        request.args.put(Security.CACHE_PER_REQUEST, mockGetRoleHolder(UserRole.ADMIN));
+        Response response = GET(request, "/showMixedContent");
+
+        assertFalse("User in one of roles can watch restricted content", response.out.toString().contains(
+                "This is restricted content for admin being user"));
+    }
+
+    @Test
+    public void testCachedContentIsRenderedByRoles() {
+        Request request = newRequest();
+        request.args.put(Security.CACHE_PER_REQUEST, mockGetRoleHolder(UserRole.ADMIN));
+        assertTrue("Admin cannot watch cached content for admin", GET(request, "/showMixedContent").out.toString()
+                .contains("This is cached menu for admin"));
+
+        request = newRequest();
+        request.args.put(Security.CACHE_PER_REQUEST, mockGetRoleHolder(UserRole.USER));
+        assertFalse("User can watch cached content for admin", GET(request, "/showMixedContent").out.toString()
+                .contains("This is cached menu for admin"));
+
+        request = newRequest();
+        request.args.put(Security.CACHE_PER_REQUEST, mockGetRoleHolder(UserRole.ADMIN));
+        assertTrue("Admin cannot watch cached content for admin", GET(request, "/showMixedContent").out.toString()
+                .contains("This is cached menu for admin"));
+    }
+
+    @Test
+    public void testListedDocumentsAreReadOnlyForUser() {
+        Request request = newRequest();
+        request.args.put(Security.CACHE_PER_REQUEST, mockGetRoleHolder(UserRole.USER));
+        String content = GET(request, "/showMixedContent").out.toString();
+
+        assertTrue("User cannot see listed documents", content.contains("Listed document 2 writable: false"));
+        assertFalse("User can write listed documents", content.contains("writable: true"));
+    }
+
+    @Test
+    public void testListedDocumentsAreNotVisibleByGuest() {
+        Request request = newRequest();
+        Response response = GET(request, "/showMixedContent");
+
+        assertFalse("Guest can see listed documents", response.out.toString().contains("Listed document"));
+    }
+
+    @Test
+    public void testRestrictedResourceIsVisibleByAdminOnly() {
+        Request request = newRequest();
+        request.args.put(Security.CACHE_PER_REQUEST, mockGetRoleHolder(UserRole.ADMIN));
+        assertTrue("Admin cannot see restricted resource", GET(request, "/showMixedContent").out.toString()
+                .contains("Link to reports"));
+
+        request = newRequest();
+        request.args.put(Security.CACHE_PER_REQUEST, mockGetRoleHolder(UserRole.USER));
+        assertFalse("User can see restricted resource", GET(request, "/showMixedContent").out.toString()
+                .contains("Link to reports"));
+    }
+
     private User mockGetRoleHolder(UserRole... roles) {
         User user = new User();
         for (UserRole role : roles) {
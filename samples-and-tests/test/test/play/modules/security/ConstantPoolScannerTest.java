@@ -0,0 +1,48 @@
+package play.modules.security;
+
+import org.junit.Test;
+import play.Play;
+import play.test.UnitTest;
+
+public class ConstantPoolScannerTest extends UnitTest {
+
+    @Test
+    public void testClassWithSecurityAnnotations() {
+        assertTrue(ConstantPoolScanner.referencesSecurityAnnotations(bytecodeOf("services.Service")));
+        assertTrue(ConstantPoolScanner.referencesSecurityAnnotations(bytecodeOf("services.RestrictedService")));
+    }
+
+    @Test
+    public void testClassWithoutSecurityAnnotations() {
+        assertFalse(ConstantPoolScanner.referencesSecurityAnnotations(bytecodeOf("model.UserRole")));
+        assertFalse(ConstantPoolScanner.referencesSecurityAnnotations(bytecodeOf("model.Document")));
+    }
+
+    @Test
+    public void testEnhancedClass() {
+        assertTrue(ConstantPoolScanner.isEnhanced(Play.classes.getApplicationClass("services.Service").enhancedByteCode));
+        assertFalse(ConstantPoolScanner.isEnhanced(bytecodeOf("services.Service")));
+        assertFalse(ConstantPoolScanner.isEnhanced(null));
+    }
+
+    @Test
+    public void testSuperclassName() {
+        assertEquals("services.RestrictedService",
+                ConstantPoolScanner.getSuperclassName(bytecodeOf("services.ExtendedRestrictedService")));
+        assertEquals("java.lang.Object", ConstantPoolScanner.getSuperclassName(bytecodeOf("services.Service")));
+        assertNull(ConstantPoolScanner.getSuperclassName(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    public void testMalformedClassIsScanned() {
+        assertTrue(ConstantPoolScanner.referencesSecurityAnnotations(null));
+        assertTrue(ConstantPoolScanner.referencesSecurityAnnotations(new byte[] {1, 2, 3}));
+        byte[] truncated = new byte[12];
+        System.arraycopy(bytecodeOf("model.UserRole"), 0, truncated, 0, truncated.length);
+        assertTrue(ConstantPoolScanner.referencesSecurityAnnotations(truncated));
+    }
+
+    private byte[] bytecodeOf(String className) {
+        return Play.classes.getApplicationClass(className).javaByteCode;
+    }
+}
@@ -0,0 +1,70 @@
+package play.modules.security;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import play.test.UnitTest;
+
+public class EnhancementIndexTest extends UnitTest {
+
+    @Test
+    public void testClassWithoutSecuredMethodsIsNotIndexed() {
+        EnhancementIndex index = new EnhancementIndex(null);
+        index.record("controllers.Secured", Arrays.asList("show(J)V"));
+        index.record("model.Plain", Collections.<String>emptyList());
+
+        assertEquals(Arrays.asList("controllers.Secured"), index.getSecuredClasses());
+        assertTrue(index.getSecuredMethods("model.Plain").isEmpty());
+
+        index.record("controllers.Secured", Collections.<String>emptyList());
+        assertTrue(index.getSecuredClasses().isEmpty());
+    }
+
+    @Test
+    public void testRemovedClassesAreNotRetained() {
+        EnhancementIndex index = new EnhancementIndex(null);
+        index.record("controllers.Secured", Arrays.asList("show(J)V"));
+        index.record("controllers.Deleted", Arrays.asList("edit(J)V"));
+
+        index.retain(Arrays.asList("controllers.Secured", "model.Plain"));
+
+        assertEquals(Arrays.asList("controllers.Secured"), index.getSecuredClasses());
+    }
+
+    @Test
+    public void testIndexIsSavedAndLoaded() throws Exception {
+        File file = File.createTempFile("security", ".index");
+        file.deleteOnExit();
+
+        EnhancementIndex index = EnhancementIndex.load(file);
+        index.record("controllers.Secured", Arrays.asList("show(J)V", "list()V"));
+        index.record("services.Service", Arrays.asList("save()V"));
+        index.save();
+
+        EnhancementIndex loaded = EnhancementIndex.load(file);
+        assertEquals(Arrays.asList("show(J)V", "list()V"), loaded.getSecuredMethods("controllers.Secured"));
+        assertEquals(Arrays.asList("controllers.Secured", "services.Service"), loaded.getSecuredClasses());
+    }
+
+    @Test
+    public void testMethodsWithReferenceParametersAreLoadedUnchanged() throws Exception {
+        File file = File.createTempFile("security", ".index");
+        file.deleteOnExit();
+        List<String> methods = Arrays.asList("show(Ljava/lang/Long;)V", "edit(Lmodel/Document;Ljava/lang/String;)V");
+
+        EnhancementIndex index = EnhancementIndex.load(file);
+        index.record("controllers.Documents", methods);
+        index.save();
+
+        EnhancementIndex loaded = EnhancementIndex.load(file);
+        assertEquals(methods, loaded.getSecuredMethods("controllers.Documents"));
+
+        assertTrue(file.delete());
+        loaded.record("controllers.Documents", methods);
+        loaded.save();
+        assertFalse("Unchanged index must not be written again", file.exists());
+    }
+}
@@ -0,0 +1,28 @@
+package security;
+
+import org.junit.Test;
+import play.test.UnitTest;
+import security.annotation.Access.AccessType;
+
+public class AccessTypeTest extends UnitTest {
+
+    @Test
+    public void testMaskOfAccessTypes() {
+        assertEquals(3, AccessType.toMask(AccessType.READ, AccessType.WRITE));
+        assertEquals(7, AccessType.toMask(AccessType.READ, AccessType.ALL));
+        assertEquals(0, AccessType.toMask());
+    }
+
+    @Test
+    public void testAccessTypesOfMaskAreShared() {
+        assertSame(AccessType.fromMask(3), AccessType.fromMask(3));
+        assertArrayEquals(new AccessType[] {AccessType.READ, AccessType.WRITE}, AccessType.fromMask(3));
+        assertArrayEquals(new AccessType[] {AccessType.DELETE}, AccessType.fromMask(AccessType.DELETE.getCode()));
+        assertArrayEquals(new AccessType[] {AccessType.ALL}, AccessType.fromMask(7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMask() {
+        AccessType.fromMask(8);
+    }
+}
@@ -0,0 +1,144 @@
+package security;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import model.Document;
+import model.User;
+import model.UserRole;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import play.test.UnitTest;
+import security.annotation.Access.AccessType;
+import security.cache.CachingAccessHandler;
+import security.handler.AccessHandler;
+import security.handler.AccessResult;
+import security.handler.PrincipalKeyProvider;
+
+public class CachingAccessHandlerTest extends UnitTest {
+
+    private AccessHandler delegate;
+
+    private Object principalKey;
+
+    private CachingAccessHandler accessHandler;
+
+    private User user;
+
+    private SecurityContext context;
+
+    @Before
+    public void setUp() {
+        delegate = Mockito.spy(new DynamicResourcesHandler());
+        principalKey = "user";
+        accessHandler = new CachingAccessHandler(delegate, new PrincipalKeyProvider() {
+            public Object getPrincipalKey() {
+                return principalKey;
+            }
+        }, 100, 1, TimeUnit.MINUTES);
+
+        user = new User();
+        user.getRoles().add(UserRole.USER);
+
+        context = SecurityContext.open();
+        context.setCurrentRoleHolder(user);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void testDecisionsAreCached() {
+        Document document = new Document();
+        AccessType[] write = new AccessType[] {AccessType.WRITE};
+
+        assertEquals(AccessResult.DENIED, accessHandler.checkAccess(user, document, write));
+        assertEquals(AccessResult.DENIED, accessHandler.checkAccess(user, document, write));
+        assertEquals(AccessResult.ALLOWED, accessHandler.checkAccess(user, document, new AccessType[] {AccessType.READ}));
+
+        Mockito.verify(delegate, Mockito.times(1)).checkAccess(user, document, write);
+    }
+
+    @Test
+    public void testInvalidatedDecisionIsCheckedAgain() {
+        Document document = new Document();
+        AccessType[] read = new AccessType[] {AccessType.READ};
+
+        accessHandler.checkAccess(user, document, read);
+        accessHandler.invalidate(document);
+        accessHandler.checkAccess(user, document, read);
+
+        Mockito.verify(delegate, Mockito.times(2)).checkAccess(user, document, read);
+    }
+
+    @Test
+    public void testGuestDecisionsAreNotCached() {
+        principalKey = null;
+        Document document = new Document();
+        AccessType[] read = new AccessType[] {AccessType.READ};
+
+        accessHandler.checkAccess(null, document, read);
+        accessHandler.checkAccess(null, document, read);
+
+        Mockito.verify(delegate, Mockito.times(2)).checkAccess(null, document, read);
+    }
+
+    @Test
+    public void testBatchCheckUsesCachedDecisions() {
+        Document cached = new Document();
+        Document missed = new Document();
+        AccessType[] read = new AccessType[] {AccessType.READ};
+
+        accessHandler.checkAccess(user, cached, read);
+        BitSet allowed = accessHandler.checkAccess(user, Arrays.asList(cached, missed), read);
+
+        assertTrue(allowed.get(0));
+        assertTrue(allowed.get(1));
+        Mockito.verify(delegate, Mockito.times(1)).checkAccess(user, cached, read);
+        Mockito.verify(delegate, Mockito.times(1)).checkAccess(user, missed, read);
+    }
+
+    @Test
+    public void testDecisionsOfOtherRoleHolderAreNotCached() {
+        User other = new User();
+        Document document = new Document();
+        AccessType[] read = new AccessType[] {AccessType.READ};
+
+        accessHandler.checkAccess(other, document, read);
+        accessHandler.checkAccess(other, document, read);
+        accessHandler.checkAccess(user, document, read);
+
+        Mockito.verify(delegate, Mockito.times(2)).checkAccess(other, document, read);
+        Mockito.verify(delegate, Mockito.times(1)).checkAccess(user, document, read);
+    }
+
+    @Test
+    public void testDecisionsAreNotCachedOutsideOfContext() {
+        context.close();
+        Document document = new Document();
+        AccessType[] read = new AccessType[] {AccessType.READ};
+
+        accessHandler.checkAccess(user, document, read);
+        accessHandler.checkAccess(user, document, read);
+
+        Mockito.verify(delegate, Mockito.times(2)).checkAccess(user, document, read);
+    }
+
+    @Test
+    public void testNewDelegateSharesCachedDecisions() {
+        Document document = new Document();
+        AccessType[] read = new AccessType[] {AccessType.READ};
+        AccessHandler newDelegate = Mockito.spy(new DynamicResourcesHandler());
+
+        accessHandler.checkAccess(user, document, read);
+        accessHandler.withDelegate(newDelegate).checkAccess(user, document, read);
+
+        assertSame(accessHandler, accessHandler.withDelegate(delegate));
+        Mockito.verify(newDelegate, Mockito.never()).checkAccess(user, document, read);
+    }
+}
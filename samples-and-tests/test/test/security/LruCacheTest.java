@@ -0,0 +1,46 @@
+package security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import play.test.UnitTest;
+import security.cache.LruCache;
+
+public class LruCacheTest extends UnitTest {
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        LruCache<String, String> cache = new LruCache<String, String>(2, 0, TimeUnit.SECONDS);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("C", cache.get("c"));
+    }
+
+    @Test
+    public void testExpiredValueIsNotReturned() throws InterruptedException {
+        LruCache<String, String> cache = new LruCache<String, String>(10, 1, TimeUnit.MILLISECONDS);
+        cache.put("a", "A");
+        Thread.sleep(10);
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testInvalidation() {
+        LruCache<String, String> cache = new LruCache<String, String>(100, 1, TimeUnit.MINUTES);
+        cache.put("a", "A");
+        cache.put("b", "B");
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        assertEquals("B", cache.get("b"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,85 @@
+package security;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import model.User;
+import model.UserRole;
+import org.junit.Test;
+import play.test.UnitTest;
+import security.role.Role;
+import security.role.RoleHolder;
+import security.role.RoleIndex;
+import security.role.RoleMask;
+
+public class RoleMaskTest extends UnitTest {
+
+    @Test
+    public void testRoleIdsAreStable() {
+        assertEquals(RoleIndex.idOf("ADMIN"), RoleIndex.idOf("ADMIN"));
+    }
+
+    @Test
+    public void testRoleHolderMaskIntersectsRequiredRoles() {
+        User user = new User();
+        user.getRoles().add(UserRole.USER);
+        RoleMask userRoles = RoleMask.of(user);
+
+        assertTrue(userRoles.intersects(RoleMask.of("ADMIN", "USER")));
+        assertFalse(userRoles.intersects(RoleMask.of("ADMIN")));
+    }
+
+    @Test
+    public void testContainsAll() {
+        RoleMask roles = RoleMask.of(Arrays.asList("ADMIN", "USER"));
+
+        assertTrue(roles.containsAll(RoleMask.of("USER")));
+        assertFalse(RoleMask.of("USER").containsAll(roles));
+        assertTrue(roles.containsAll(RoleMask.EMPTY));
+    }
+
+    @Test
+    public void testMasksAboveSingleWord() {
+        String[] roleNames = new String[100];
+        for (int i = 0; i < roleNames.length; i++) {
+            roleNames[i] = "ROLE_" + i;
+        }
+        RoleMask roles = RoleMask.of(roleNames);
+
+        assertTrue(roles.intersects(RoleMask.of("ROLE_99")));
+        assertTrue(roles.containsAll(RoleMask.of("ROLE_1", "ROLE_70")));
+        assertFalse(RoleMask.of("ROLE_1").intersects(RoleMask.of("ROLE_99")));
+    }
+
+    @Test
+    public void testUnknownRolesOfRoleHolderAreNotInterned() {
+        final String roleName = "UNKNOWN_" + System.nanoTime();
+        RoleHolder roleHolder = new RoleHolder() {
+            public List<? extends Role> getRoles() {
+                return Collections.singletonList(new Role() {
+                    public String getRoleName() {
+                        return roleName;
+                    }
+                });
+            }
+        };
+        int size = RoleIndex.size();
+
+        RoleMask roles = RoleMask.of(roleHolder);
+        assertEquals(size, RoleIndex.size());
+        assertTrue(roles.isEmpty());
+        assertTrue(roles.isCurrent());
+
+        assertFalse(roles.intersects(RoleMask.of(roleName)));
+        assertFalse(roles.isCurrent());
+        assertTrue(RoleMask.of(roleHolder).intersects(RoleMask.of(roleName)));
+    }
+
+    @Test
+    public void testEqualMasks() {
+        assertEquals(RoleMask.of("ADMIN", "USER"), RoleMask.of("USER", "ADMIN"));
+        assertEquals(RoleMask.of("ADMIN", "USER").hashCode(), RoleMask.of("USER", "ADMIN").hashCode());
+        assertTrue(RoleMask.of(new User()).isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+package security;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+import play.Play;
+import play.test.UnitTest;
+
+public class SecurityConfigTest extends UnitTest {
+
+    @Test
+    public void testConfigurationIsParsed() {
+        Properties configuration = new Properties();
+        configuration.setProperty(Security.SECURITY_HANDLER_KEY, " security.ACLSecurityHandler ");
+        configuration.setProperty(Security.CACHE_USER_KEY, "true");
+
+        SecurityConfig config = SecurityConfig.reload(configuration);
+
+        assertEquals("security.ACLSecurityHandler", config.getHandlerClassName());
+        assertTrue(config.isCacheUserPerRequest());
+        assertSame(config, SecurityConfig.get());
+    }
+
+    @Test
+    public void testDefaults() {
+        SecurityConfig config = SecurityConfig.reload(new Properties());
+
+        assertNull(config.getHandlerClassName());
+        assertFalse(config.isCacheUserPerRequest());
+    }
+
+    @Test
+    public void testRolesAreParsed() {
+        Properties configuration = new Properties();
+        configuration.setProperty(SecurityConfig.ROLES_KEY, " ADMIN, USER ,");
+
+        assertEquals(new HashSet<String>(Arrays.asList("ADMIN", "USER")), SecurityConfig.reload(configuration).getRoles());
+        assertNull(SecurityConfig.reload(new Properties()).getRoles());
+    }
+
+    @After
+    public void restoreConfiguration() {
+        SecurityConfig.reload(Play.configuration);
+    }
+}
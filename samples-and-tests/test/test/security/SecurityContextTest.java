@@ -0,0 +1,118 @@
+package security;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.User;
+import model.UserRole;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import play.Play;
+import play.mvc.Http.Request;
+import play.test.UnitTest;
+import security.handler.AccessResult;
+import security.handler.SecurityHandler;
+import security.role.RoleHolder;
+
+public class SecurityContextTest extends UnitTest {
+
+    private SecurityContext context;
+
+    private SecurityHandler securityHandler;
+
+    @Before
+    public void setUp() {
+        Properties configuration = new Properties(Play.configuration);
+        configuration.setProperty(Security.CACHE_USER_KEY, "true");
+        SecurityConfig.reload(configuration);
+
+        securityHandler = Mockito.spy(new ACLSecurityHandler());
+        Mockito.when(securityHandler.getRoleHolder()).thenReturn(new User());
+        Security.getInstance().securityHandler = securityHandler;
+
+        context = SecurityContext.open();
+    }
+
+    @Test
+    public void testRoleHolderIsResolvedOncePerContext() {
+        RoleHolder roleHolder = Security.getInstance().getRoleHolder();
+
+        assertSame(roleHolder, Security.getInstance().getRoleHolder());
+        Mockito.verify(securityHandler, Mockito.times(1)).beforeRoleCheck();
+        Mockito.verify(securityHandler, Mockito.times(1)).getRoleHolder();
+    }
+
+    @Test
+    public void testRoleHolderIsKeptByContextWithoutRequestCache() {
+        SecurityConfig.reload(Play.configuration);
+        RoleHolder roleHolder = Security.getInstance().getRoleHolder();
+
+        assertSame(roleHolder, Security.getInstance().getRoleHolder());
+        Mockito.verify(securityHandler, Mockito.times(1)).getRoleHolder();
+    }
+
+    @Test
+    public void testInvalidatedRoleHolderIsResolvedAgain() {
+        Security.getInstance().getRoleHolder();
+        Security.getInstance().invalidateAllRoleHolders();
+        Security.getInstance().getRoleHolder();
+
+        Mockito.verify(securityHandler, Mockito.times(2)).getRoleHolder();
+    }
+
+    @Test
+    public void testNestedContextRestoresParent() {
+        SecurityContext nested = SecurityContext.open();
+        assertSame(nested, SecurityContext.current());
+
+        nested.close();
+        assertSame(context, SecurityContext.current());
+    }
+
+    @Test
+    public void testContextIsPropagatedToExecutor() throws Exception {
+        RoleHolder roleHolder = Security.getInstance().getRoleHolder();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RoleHolder workerRoleHolder = executor.submit(SecurityContext.wrap(new Callable<RoleHolder>() {
+                public RoleHolder call() {
+                    return Security.getInstance().getRoleHolder();
+                }
+            })).get();
+
+            assertSame(roleHolder, workerRoleHolder);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testResourceDecisionIsMemoisedPerRoleHolder() {
+        User admin = new User();
+        admin.getRoles().add(UserRole.ADMIN);
+        User user = new User();
+        user.getRoles().add(UserRole.USER);
+        List<String> resourceNames = Arrays.asList("reports");
+
+        assertEquals(AccessResult.ALLOWED,
+                Security.getInstance().checkRestrictedResource(admin, resourceNames, null));
+        assertEquals(AccessResult.DENIED,
+                Security.getInstance().checkRestrictedResource(user, resourceNames, null));
+    }
+
+    @After
+    public void cleanUp() {
+        context.close();
+        if (Request.current() != null) {
+            Request.current().args.remove(Security.CACHE_PER_REQUEST);
+        }
+        Security.getInstance().securityHandler = new ACLSecurityHandler();
+        SecurityConfig.reload(Play.configuration);
+    }
+}
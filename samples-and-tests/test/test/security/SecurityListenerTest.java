@@ -0,0 +1,138 @@
+package security;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.test.UnitTest;
+import security.annotation.Access.AccessType;
+import security.exception.SecurityException;
+import security.handler.AccessResult;
+import security.handler.SecurityListener;
+import security.handler.SecurityListenerAdapter;
+import security.role.RoleHolder;
+import services.Service;
+
+public class SecurityListenerTest extends UnitTest {
+
+    Security security;
+
+    RecordingListener listener;
+
+    SecurityListener failingListener = new SecurityListenerAdapter() {
+        @Override
+        public void onCheckStart(SecurityPlan plan, long startTime) {
+            throw new IllegalStateException("listener failure");
+        }
+    };
+
+    @Before
+    public void setUpListener() {
+        security = Security.getInstance();
+        security.securityHandler = new ACLSecurityHandler();
+        listener = new RecordingListener();
+        security.addListener(listener);
+    }
+
+    @Test
+    public void testListenerIsNotifiedAboutDeniedCheck() {
+        SecurityPlan plan = SecurityPlan.forMethod(Service.class, "securedMethod", new Class<?>[] {});
+
+        try {
+            security.executeSecurityChecks(plan);
+            fail("Access is allowed without user");
+        } catch (SecurityException e) {
+            assertEquals(3, listener.events.size());
+            assertEquals("start", listener.events.get(0));
+            assertEquals("roleHolder", listener.events.get(1));
+            assertEquals("failure", listener.events.get(2));
+            assertSame(plan, listener.failedPlan);
+            assertEquals(0, listener.deniedObjects.length);
+        }
+    }
+
+    @Test
+    public void testListenerIsNotifiedAboutAsynchronousCheck() throws Exception {
+        Document document = new Document();
+
+        boolean allowed = security.hasAccessAsync(document, AccessType.READ).get();
+
+        assertTrue(listener.events.contains("decision"));
+        assertSame(document, listener.decidedObject);
+        assertEquals(allowed, listener.decision == AccessResult.ALLOWED);
+    }
+
+    @Test
+    public void testRemovedListenerIsNotNotified() {
+        security.removeListener(listener);
+        SecurityPlan plan = SecurityPlan.forMethod(Service.class, "securedMethod", new Class<?>[] {});
+
+        try {
+            security.executeSecurityChecks(plan);
+            fail("Access is allowed without user");
+        } catch (SecurityException e) {
+            assertTrue(listener.events.isEmpty());
+        }
+    }
+
+    @Test
+    public void testFailingListenerDoesNotBreakChecks() {
+        security.addListener(failingListener);
+        SecurityPlan plan = SecurityPlan.forMethod(Service.class, "securedMethod", new Class<?>[] {});
+
+        try {
+            security.executeSecurityChecks(plan);
+            fail("Access is allowed without user");
+        } catch (SecurityException e) {
+            assertEquals("failure", listener.events.get(listener.events.size() - 1));
+        }
+    }
+
+    @After
+    public void removeListeners() {
+        security.removeListener(listener);
+        security.removeListener(failingListener);
+    }
+
+    static class RecordingListener extends SecurityListenerAdapter {
+
+        final List<String> events = new ArrayList<String>();
+
+        SecurityPlan failedPlan;
+
+        AclManaged[] deniedObjects;
+
+        volatile AclManaged decidedObject;
+
+        volatile AccessResult decision;
+
+        @Override
+        public void onCheckStart(SecurityPlan plan, long startTime) {
+            events.add("start");
+        }
+
+        @Override
+        public void onRoleHolderResolved(RoleHolder roleHolder, long duration) {
+            assertTrue(duration >= 0);
+            events.add("roleHolder");
+        }
+
+        @Override
+        public void onAccessDecision(RoleHolder roleHolder, AclManaged contextObject, int accessMask,
+                AccessResult result, long duration) {
+            decidedObject = contextObject;
+            decision = result;
+            events.add("decision");
+        }
+
+        @Override
+        public void onAccessFailure(SecurityPlan plan, AclManaged[] deniedObjects, long time) {
+            failedPlan = plan;
+            this.deniedObjects = deniedObjects;
+            events.add("failure");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package security;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.Play;
+import play.test.UnitTest;
+import security.exception.SecurityException;
+import services.Service;
+
+public class SecurityMetricsTest extends UnitTest {
+
+    Security security;
+
+    @Before
+    public void setUpHandler() {
+        security = Security.getInstance();
+        security.securityHandler = new ACLSecurityHandler();
+    }
+
+    @Test
+    public void testChecksOfMethodAreCounted() {
+        enableMetrics(true);
+        SecurityPlan plan = SecurityPlan.forMethod(Service.class, "securedMethod", new Class<?>[] {});
+        long checks = plan.getMetrics().getChecks();
+        long denied = plan.getMetrics().getDenied();
+
+        try {
+            security.executeSecurityChecks(plan);
+            fail("Access is allowed without user");
+        } catch (SecurityException e) {
+            assertEquals(checks + 1, plan.getMetrics().getChecks());
+            assertEquals(denied + 1, plan.getMetrics().getDenied());
+            assertTrue(SecurityMetrics.ROLE_HOLDER.getCount() > 0);
+            assertTrue(SecurityMetrics.getStatus().contains("services.Service.securedMethod()"));
+            assertNotNull(SecurityMetrics.getJsonStatus());
+        }
+    }
+
+    @Test
+    public void testDenialIsCountedOnceWhenHandlerDoesNotThrow() {
+        enableMetrics(true);
+        final int[] failures = new int[1];
+        security.securityHandler = new ACLSecurityHandler() {
+            @Override
+            public void onAccessFailure(Method method, AclManaged... forbiddenObject) {
+                failures[0]++;
+            }
+        };
+        SecurityPlan plan = SecurityPlan.forMethod(Service.class, "loggedAccessForAdminOnly", new Class<?>[] {});
+        long denied = plan.getMetrics().getDenied();
+
+        security.executeSecurityChecks(plan);
+
+        assertEquals(1, failures[0]);
+        assertEquals(denied + 1, plan.getMetrics().getDenied());
+    }
+
+    @Test
+    public void testNothingIsRecordedWhenDisabled() {
+        enableMetrics(false);
+        SecurityPlan plan = SecurityPlan.forMethod(Service.class, "securedMethod", new Class<?>[] {});
+        long checks = plan.getMetrics().getChecks();
+
+        try {
+            security.executeSecurityChecks(plan);
+            fail("Access is allowed without user");
+        } catch (SecurityException e) {
+            assertEquals(checks, plan.getMetrics().getChecks());
+            assertNull(SecurityMetrics.getStatus());
+            assertNull(SecurityMetrics.getJsonStatus());
+        }
+    }
+
+    @Test
+    public void testCounterSumsAllThreads() throws Exception {
+        final SecurityMetrics.Counter counter = new SecurityMetrics.Counter();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        counter.increment();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(4000, counter.sum());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        SecurityMetrics.Histogram histogram = new SecurityMetrics.Histogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(3000);
+        }
+        histogram.record(1000000);
+        histogram.record(1000000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(4, histogram.getPercentile(0.5));
+        assertEquals(1024, histogram.getPercentile(0.99));
+        assertEquals(22, histogram.getMean());
+    }
+
+    @After
+    public void restoreConfiguration() {
+        SecurityConfig.reload(Play.configuration);
+    }
+
+    private void enableMetrics(boolean enabled) {
+        Properties configuration = new Properties();
+        configuration.putAll(Play.configuration);
+        configuration.setProperty(SecurityConfig.METRICS_KEY, String.valueOf(enabled));
+        SecurityConfig.reload(configuration);
+    }
+}
@@ -0,0 +1,72 @@
+package security;
+
+import java.util.List;
+
+import model.Document;
+import model.User;
+import org.junit.Test;
+import play.test.UnitTest;
+import security.annotation.Access.AccessType;
+import services.ACLService;
+import services.RestrictedService;
+import services.Service;
+
+public class SecurityPlanTest extends UnitTest {
+
+    @Test
+    public void testPlanIsResolvedOnce() {
+        SecurityPlan plan = SecurityPlan.forMethod(Service.class, "securedMethod", new Class<?>[] {});
+
+        assertSame(plan, SecurityPlan.forMethod(Service.class, "securedMethod", new Class<?>[] {}));
+    }
+
+    @Test
+    public void testRoleRequiredIsResolvedFromClass() {
+        SecurityPlan plan = SecurityPlan.forMethod(RestrictedService.class, "changeEverything", new Class<?>[] {});
+
+        assertTrue(plan.hasChecks());
+        assertEquals(1, plan.getRoleNames().length);
+        assertEquals("ADMIN", plan.getRoleNames()[0]);
+    }
+
+    @Test
+    public void testUnsecuredPlanHasNoChecks() {
+        SecurityPlan plan = SecurityPlan.forMethod(RestrictedService.class, "doSimpleChange", new Class<?>[] {});
+
+        assertTrue(plan.isUnsecured());
+        assertFalse(plan.hasChecks());
+    }
+
+    @Test
+    public void testAccessParametersAreResolved() {
+        SecurityPlan plan = SecurityPlan.forMethod(ACLService.class, "addDocument",
+                new Class<?>[] {User.class, Document.class});
+
+        assertEquals(1, plan.getAccessParameters().length);
+        SecurityPlan.AccessParameter parameter = plan.getAccessParameters()[0];
+        assertEquals(0, parameter.getIndex());
+        assertEquals(Document.class, parameter.getType());
+        assertEquals(AccessType.WRITE, parameter.getAccessTypes()[0]);
+    }
+
+    @Test
+    public void testCollectionAccessParameterIsMultiple() {
+        SecurityPlan plan = SecurityPlan.forMethod(ACLService.class, "deleteDocuments", new Class<?>[] {List.class});
+
+        assertTrue(plan.getAccessParameters()[0].isMultiple());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingMethodHasNoPlan() {
+        SecurityPlan.forMethod(Service.class, "missingMethod", new Class<?>[] {});
+    }
+
+    @Test
+    public void testCachedPlanDoesNotDependOnArrayOfCaller() {
+        Class<?>[] paramTypes = new Class<?>[] {List.class};
+        SecurityPlan plan = SecurityPlan.forMethod(ACLService.class, "deleteDocuments", paramTypes);
+        paramTypes[0] = Object.class;
+
+        assertSame(plan, SecurityPlan.forMethod(ACLService.class, "deleteDocuments", new Class<?>[] {List.class}));
+    }
+}
@@ -1,15 +1,28 @@
 package security;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import controllers.Application;
+import model.Document;
 import model.User;
 import model.UserRole;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import play.Play;
 import play.test.UnitTest;
+import security.annotation.Access.AccessType;
 import security.exception.SecurityException;
 import security.handler.AccessHandler;
+import security.handler.AccessResult;
 import security.handler.SecurityHandler;
+import security.role.RoleHolder;
 import services.ACLService;
 import services.RestrictedService;
 import services.Service;
@@ -115,6 +128,223 @@ public class SecurityTest extends UnitTest {
         security.executeSecurityChecks(ACLService.class, "save", new Class<?>[] {User.class}, new User());
     }
     
+    @Test
+    public void testAdminHasAccessToEachOfDocumentIds() {
+        SecurityHandler securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.ADMIN);
+        security.securityHandler = securityHandler;
+
+        security.executeSecurityChecks(ACLService.class, "deleteDocuments", new Class<?>[] {List.class},
+                Arrays.asList(1L, 2L, 3L));
+
+        Mockito.verify(securityHandler, Mockito.times(0)).onAccessFailure(null);
+    }
+
+    @Test(expected = SecurityException.class)
+    public void testUserHasNoAccessToDocumentIds() {
+        SecurityHandler securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.USER);
+        security.securityHandler = securityHandler;
+
+        security.executeSecurityChecks(ACLService.class, "deleteDocuments", new Class<?>[] {List.class},
+                Arrays.asList(1L, 2L, 3L));
+    }
+
+    @Test
+    public void testAccessToSameObjectIsCheckedOnce() {
+        SecurityHandler securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.ADMIN);
+        AccessHandler accessHandler = Mockito.spy(new DynamicResourcesHandler());
+        Mockito.when(securityHandler.getAccessHandler()).thenReturn(accessHandler);
+        security.securityHandler = securityHandler;
+        Document document = new Document();
+
+        security.executeSecurityChecks(Application.class, "showAndEditDocument",
+                new Class<?>[] {Document.class, Document.class}, document, document);
+
+        Mockito.verify(accessHandler, Mockito.times(1)).checkAccess(Mockito.any(RoleHolder.class),
+                Mockito.eq(document), Mockito.eq(AccessType.fromMask(3)));
+        Mockito.verify(securityHandler, Mockito.times(0)).onAccessFailure(null);
+    }
+
+    @Test
+    public void testDeniedObjectIsReportedInDeclarationOrder() {
+        SecurityHandler securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.USER);
+        AccessHandler accessHandler = Mockito.spy(new DynamicResourcesHandler());
+        Mockito.when(securityHandler.getAccessHandler()).thenReturn(accessHandler);
+        security.securityHandler = securityHandler;
+        Document source = new Document();
+        Document target = new Document();
+
+        try {
+            security.executeSecurityChecks(ACLService.class, "copyDocument",
+                    new Class<?>[] {Document.class, Document.class, Document.class}, source, target, source);
+            fail("Writing a document should be denied to a user");
+        } catch (SecurityException e) {
+            // expected
+        }
+
+        Mockito.verify(accessHandler, Mockito.times(1)).checkAccess(Mockito.any(RoleHolder.class),
+                Mockito.eq(source), Mockito.eq(new AccessType[] {AccessType.READ}));
+        Mockito.verify(accessHandler, Mockito.times(1)).checkAccess(Mockito.any(RoleHolder.class),
+                Mockito.eq(target), Mockito.eq(new AccessType[] {AccessType.WRITE}));
+        Mockito.verify(securityHandler).onAccessFailure(Mockito.any(Method.class), Mockito.same(target));
+    }
+
+    @Test
+    public void testAdminHasAccessToRestrictedResource() {
+        SecurityHandler securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.ADMIN);
+        security.securityHandler = securityHandler;
+
+        security.executeSecurityChecks(Service.class, "showReports", new Class<?>[] {});
+
+        Mockito.verify(securityHandler, Mockito.times(0)).onAccessFailure(null);
+    }
+
+    @Test(expected = SecurityException.class)
+    public void testUserHasNoAccessToRestrictedResource() {
+        security.securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.USER);
+
+        security.executeSecurityChecks(Service.class, "showReports", new Class<?>[] {});
+    }
+
+    @Test(expected = SecurityException.class)
+    public void testUnspecifiedResourceIsDenied() {
+        security.securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.ADMIN);
+
+        security.executeSecurityChecks(Service.class, "showUnknownResource", new Class<?>[] {});
+    }
+
+    @Test
+    public void testUnspecifiedResourceFallsBackToRoles() {
+        SecurityHandler securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.USER);
+        security.securityHandler = securityHandler;
+
+        security.executeSecurityChecks(Service.class, "showUnknownResourceForUser", new Class<?>[] {});
+
+        Mockito.verify(securityHandler, Mockito.times(0)).onAccessFailure(null);
+    }
+
+    @Test
+    public void testAccessIsCheckedAsynchronously() throws Exception {
+        security.securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.USER);
+        Document document = new Document();
+
+        assertTrue(security.hasAccessAsync(document, AccessType.READ).get());
+        assertFalse(security.hasAccessAsync(document, AccessType.WRITE).get());
+    }
+
+    @Test
+    public void testFirstDeniedParameterIsReportedByParallelChecks() {
+        Properties configuration = new Properties(Play.configuration);
+        configuration.setProperty(SecurityConfig.PARALLEL_ACCESS_CHECKS_KEY, "true");
+        configuration.setProperty(SecurityConfig.PARALLEL_ACCESS_CHECKS_THREADS_KEY, "2");
+        SecurityConfig.reload(configuration);
+
+        SecurityHandler securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.USER);
+        security.securityHandler = securityHandler;
+        Document document = new Document();
+        Document source = new Document();
+        Document target = new Document();
+
+        try {
+            security.executeSecurityChecks(ACLService.class, "moveDocument",
+                    new Class<?>[] {Document.class, Document.class, Document.class}, document, source, target);
+            fail("Access to document is allowed for user");
+        } catch (SecurityException e) {
+            Mockito.verify(securityHandler, Mockito.times(1)).onAccessFailure(Mockito.any(java.lang.reflect.Method.class),
+                    Mockito.eq(document));
+        } finally {
+            SecurityConfig.reload(Play.configuration);
+        }
+    }
+
+    @Test
+    public void testParallelChecksFallBackToSequentialChecksOnTimeout() {
+        Properties configuration = new Properties(Play.configuration);
+        configuration.setProperty(SecurityConfig.PARALLEL_ACCESS_CHECKS_KEY, "true");
+        configuration.setProperty(SecurityConfig.PARALLEL_ACCESS_CHECKS_TIMEOUT_KEY, "0");
+        SecurityConfig.reload(configuration);
+
+        SecurityHandler securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.USER);
+        security.securityHandler = securityHandler;
+        Document source = new Document();
+        Document target = new Document();
+
+        try {
+            security.executeSecurityChecks(ACLService.class, "copyDocument",
+                    new Class<?>[] {Document.class, Document.class, Document.class}, source, target, new Document());
+            fail("Writing a document should be denied to a user");
+        } catch (SecurityException e) {
+            Mockito.verify(securityHandler, Mockito.times(1)).onAccessFailure(Mockito.any(Method.class),
+                    Mockito.eq(target));
+        } finally {
+            SecurityConfig.reload(Play.configuration);
+        }
+    }
+
+    @Test
+    public void testParallelChecksRunningOnTimeoutAreAwaitedNotRepeated() {
+        Properties configuration = new Properties(Play.configuration);
+        configuration.setProperty(SecurityConfig.PARALLEL_ACCESS_CHECKS_KEY, "true");
+        configuration.setProperty(SecurityConfig.PARALLEL_ACCESS_CHECKS_THREADS_KEY, "1");
+        configuration.setProperty(SecurityConfig.PARALLEL_ACCESS_CHECKS_TIMEOUT_KEY, "50");
+        SecurityConfig.reload(configuration);
+        AccessCheckExecutor.shutdown();
+
+        final Document source = new Document();
+        final Document target = new Document();
+        final AtomicInteger sourceChecks = new AtomicInteger();
+        final AtomicInteger targetChecks = new AtomicInteger();
+        final AtomicBoolean sourceChecked = new AtomicBoolean();
+        AccessHandler accessHandler = new DynamicResourcesHandler() {
+            @Override
+            public AccessResult checkAccess(RoleHolder roleHolder, AclManaged contextObject,
+                    AccessType[] accessTypes) {
+                if (contextObject == source) {
+                    sourceChecks.incrementAndGet();
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    sourceChecked.set(true);
+                } else if (contextObject == target) {
+                    targetChecks.incrementAndGet();
+                }
+                return super.checkAccess(roleHolder, contextObject, accessTypes);
+            }
+        };
+        SecurityHandler securityHandler = mockGetRoleHolder(security.securityHandler, UserRole.USER);
+        Mockito.when(securityHandler.getAccessHandler()).thenReturn(accessHandler);
+        security.securityHandler = securityHandler;
+
+        try {
+            security.executeSecurityChecks(ACLService.class, "copyDocument",
+                    new Class<?>[] {Document.class, Document.class, Document.class}, source, target, new Document());
+            fail("Writing a document should be denied to a user");
+        } catch (SecurityException e) {
+            assertTrue("Running check must be awaited", sourceChecked.get());
+            assertEquals(1, sourceChecks.get());
+            assertEquals(1, targetChecks.get());
+            Mockito.verify(securityHandler, Mockito.times(1)).onAccessFailure(Mockito.any(Method.class),
+                    Mockito.eq(target));
+        } finally {
+            SecurityConfig.reload(Play.configuration);
+            AccessCheckExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testChecksOfAccessChecksAreNotSubmittedToPool() throws Exception {
+        final boolean[] available = new boolean[1];
+        AccessCheckExecutor.submit(new Runnable() {
+            public void run() {
+                available[0] = AccessCheckExecutor.isAvailable();
+            }
+        }).get();
+
+        assertTrue(AccessCheckExecutor.isAvailable());
+        assertFalse(available[0]);
+    }
+
     @After
     public void cleanUp() {
         security.securityHandler = new  ACLSecurityHandler();
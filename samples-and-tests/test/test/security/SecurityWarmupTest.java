@@ -0,0 +1,57 @@
+package security;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+import play.Play;
+import play.exceptions.ConfigurationException;
+import play.test.UnitTest;
+import services.ACLService;
+import services.Service;
+
+public class SecurityWarmupTest extends UnitTest {
+
+    @Test
+    public void testWarmUpOfEnhancedClasses() throws Exception {
+        int serviceMethods = countResolvedPlans(Service.class);
+        int aclServiceMethods = countResolvedPlans(ACLService.class);
+        assertTrue(serviceMethods > 0);
+        assertTrue(aclServiceMethods > 0);
+
+        int methods = SecurityWarmup.warmUp(
+                Arrays.asList("services.Service", "services.ACLService", "services.Removed"));
+        assertEquals(serviceMethods + aclServiceMethods, methods);
+        assertTrue(SecurityWarmup.warmUp(Collections.<String>emptyList()) >= methods);
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testUnknownRole() {
+        Properties configuration = new Properties();
+        configuration.putAll(Play.configuration);
+        configuration.setProperty(SecurityConfig.ROLES_KEY, "ADMIN");
+        SecurityConfig.reload(configuration);
+
+        SecurityWarmup.warmUp(Arrays.asList("services.Service"));
+    }
+
+    @After
+    public void restoreConfiguration() {
+        SecurityConfig.reload(Play.configuration);
+    }
+
+    private static int countResolvedPlans(Class<?> clazz) throws IllegalAccessException {
+        int plans = 0;
+        for (Field field : clazz.getDeclaredFields()) {
+            if (field.getName().startsWith(SecurityWarmup.PLAN_FIELD_PREFIX)) {
+                field.setAccessible(true);
+                assertNotNull(field.get(null));
+                plans++;
+            }
+        }
+        return plans;
+    }
+}
@@ -0,0 +1,227 @@
+package play.modules.security;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Scanner of raw class file constant pool used by {@link SecurityEnhancer} to find classes that never reference
+ * annotations from security.annotation package, before the class is parsed by Javassist. Annotations used on a class,
+ * its methods or parameters are referenced by their descriptors in the constant pool of the class itself.
+ */
+public final class ConstantPoolScanner {
+
+    /**
+     * Descriptor prefix of annotations from security.annotation package.
+     */
+    static final byte[] SECURITY_ANNOTATION_DESCRIPTOR = ascii("Lsecurity/annotation/");
+
+    /**
+     * Name prefix of plan fields added by {@link SecurityEnhancer}.
+     */
+    static final byte[] PLAN_FIELD_NAME = ascii("__securityPlan");
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int UTF8 = 1;
+
+    private static final int INTEGER = 3;
+
+    private static final int FLOAT = 4;
+
+    private static final int LONG = 5;
+
+    private static final int DOUBLE = 6;
+
+    private static final int CLASS = 7;
+
+    private static final int STRING = 8;
+
+    private static final int FIELD_REF = 9;
+
+    private static final int METHOD_REF = 10;
+
+    private static final int INTERFACE_METHOD_REF = 11;
+
+    private static final int NAME_AND_TYPE = 12;
+
+    private static final int METHOD_HANDLE = 15;
+
+    private static final int METHOD_TYPE = 16;
+
+    private static final int DYNAMIC = 17;
+
+    private static final int INVOKE_DYNAMIC = 18;
+
+    private static final int MODULE = 19;
+
+    private static final int PACKAGE = 20;
+
+    private ConstantPoolScanner() {
+    }
+
+    /**
+     * Checks if class file references annotations from security.annotation package. Bytecode that cannot be scanned
+     * is reported as referencing them, so it is examined by Javassist.
+     *
+     * @param bytecode the class file
+     * @return false, if class certainly has no security annotations
+     */
+    public static boolean referencesSecurityAnnotations(byte[] bytecode) {
+        return references(bytecode, SECURITY_ANNOTATION_DESCRIPTOR);
+    }
+
+    /**
+     * Checks if class file was already enhanced by {@link SecurityEnhancer}, ex. bytecode of precompiled class.
+     *
+     * @param bytecode the class file
+     * @return true, if class has plan fields
+     */
+    public static boolean isEnhanced(byte[] bytecode) {
+        return bytecode != null && bytecode.length >= 10 && readInt(bytecode, 0) == MAGIC
+                && references(bytecode, PLAN_FIELD_NAME);
+    }
+
+    /**
+     * Checks if any UTF-8 entry of class file constant pool contains given bytes.
+     *
+     * @param bytecode the class file
+     * @param bytes the bytes to find
+     * @return true, if the bytes were found or class file is malformed
+     */
+    static boolean references(byte[] bytecode, byte[] bytes) {
+        if (bytecode == null || bytecode.length < 10 || readInt(bytecode, 0) != MAGIC) {
+            return true;
+        }
+
+        int count = readUnsignedShort(bytecode, 8);
+        int offset = 10;
+        try {
+            for (int i = 1; i < count; i++) {
+                int tag = bytecode[offset];
+                if (tag == UTF8 && contains(bytecode, offset + 3, readUnsignedShort(bytecode, offset + 1), bytes)) {
+                    return true;
+                }
+
+                int size = entrySize(bytecode, offset);
+                if (size < 0) {
+                    return true;
+                }
+                offset += size;
+                if (tag == LONG || tag == DOUBLE) {
+                    i++;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the name of superclass of class file, so classes inheriting security annotations are found without parsing
+     * them by Javassist.
+     *
+     * @param bytecode the class file
+     * @return the superclass name, null if class has no superclass or class file is malformed
+     */
+    public static String getSuperclassName(byte[] bytecode) {
+        if (bytecode == null || bytecode.length < 10 || readInt(bytecode, 0) != MAGIC) {
+            return null;
+        }
+
+        int count = readUnsignedShort(bytecode, 8);
+        int[] offsets = new int[count];
+        int offset = 10;
+        try {
+            for (int i = 1; i < count; i++) {
+                offsets[i] = offset;
+                int tag = bytecode[offset];
+                int size = entrySize(bytecode, offset);
+                if (size < 0) {
+                    return null;
+                }
+                offset += size;
+                if (tag == LONG || tag == DOUBLE) {
+                    i++;
+                }
+            }
+
+            int superclass = readUnsignedShort(bytecode, offset + 4);
+            if (superclass == 0 || bytecode[offsets[superclass]] != CLASS) {
+                return null;
+            }
+            int name = offsets[readUnsignedShort(bytecode, offsets[superclass] + 1)];
+            if (bytecode[name] != UTF8) {
+                return null;
+            }
+            return new String(bytecode, name + 3, readUnsignedShort(bytecode, name + 1), "UTF-8").replace('/', '.');
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return null;
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets size of constant pool entry starting at given offset.
+     *
+     * @return the size in bytes, -1 if tag of the entry is unknown
+     */
+    private static int entrySize(byte[] bytecode, int offset) {
+        switch (bytecode[offset]) {
+            case UTF8:
+                return 3 + readUnsignedShort(bytecode, offset + 1);
+            case CLASS:
+            case STRING:
+            case METHOD_TYPE:
+            case MODULE:
+            case PACKAGE:
+                return 3;
+            case METHOD_HANDLE:
+                return 4;
+            case INTEGER:
+            case FLOAT:
+            case FIELD_REF:
+            case METHOD_REF:
+            case INTERFACE_METHOD_REF:
+            case NAME_AND_TYPE:
+            case DYNAMIC:
+            case INVOKE_DYNAMIC:
+                return 5;
+            case LONG:
+            case DOUBLE:
+                return 9;
+            default:
+                return -1;
+        }
+    }
+
+    private static boolean contains(byte[] bytecode, int start, int length, byte[] bytes) {
+        int last = start + length - bytes.length;
+        for (int i = start; i <= last; i++) {
+            int j = 0;
+            while (j < bytes.length && bytecode[i + j] == bytes[j]) {
+                j++;
+            }
+            if (j == bytes.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int readUnsignedShort(byte[] bytecode, int offset) {
+        return ((bytecode[offset] & 0xff) << 8) | (bytecode[offset + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] bytecode, int offset) {
+        return (readUnsignedShort(bytecode, offset) << 16) | readUnsignedShort(bytecode, offset + 2);
+    }
+
+    private static byte[] ascii(String value) {
+        byte[] bytes = new byte[value.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) value.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,199 @@
+package play.modules.security;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import play.Logger;
+
+/**
+ * On-disk index of classes enhanced by {@link SecurityEnhancer} with the methods that received security checks, so
+ * secured methods are known without loading every application class, e.g. for warm-up.
+ * <p>
+ * The index is kept in <code>tmp/security/enhancement.index</code> as one line per class:
+ * <code>className methodName+descriptor,...</code>. When no tmp directory is available it is kept in memory only.
+ */
+public class EnhancementIndex {
+
+    /**
+     * Version of the file format and enhancer logic, index of other version is discarded.
+     */
+    static final String HEADER = "# security enhancement index v3";
+
+    /**
+     * Separates enhanced methods, it can not occur in method names nor descriptors.
+     */
+    private static final String METHOD_SEPARATOR = ",";
+
+    private final File file;
+
+    private final ConcurrentMap<String, List<String>> entries = new ConcurrentHashMap<String, List<String>>();
+
+    private volatile boolean dirty;
+
+    EnhancementIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads index from given file. Missing, unreadable or outdated file gives an empty index.
+     *
+     * @param file the index file, may be null to keep index in memory only
+     * @return the index
+     */
+    public static EnhancementIndex load(File file) {
+        EnhancementIndex index = new EnhancementIndex(file);
+        if (file == null || !file.isFile()) {
+            return index;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            if (!HEADER.equals(reader.readLine())) {
+                Logger.debug("Discarding outdated security enhancement index %s", file);
+                return index;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 2) {
+                    continue;
+                }
+                index.entries.put(parts[0],
+                        Collections.unmodifiableList(Arrays.asList(parts[1].split(METHOD_SEPARATOR))));
+            }
+        } catch (IOException e) {
+            Logger.warn(e, "Cannot read security enhancement index %s", file);
+            index.entries.clear();
+        } finally {
+            close(reader);
+        }
+        return index;
+    }
+
+    /**
+     * Records methods of class that received security checks.
+     *
+     * @param className the class name
+     * @param methods enhanced methods as name followed by descriptor, empty if class had nothing to enhance
+     */
+    public void record(String className, List<String> methods) {
+        if (methods.isEmpty()) {
+            remove(className);
+            return;
+        }
+
+        List<String> previous = entries.put(className, Collections.unmodifiableList(new ArrayList<String>(methods)));
+        if (!methods.equals(previous)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Removes class which has no longer any secured methods.
+     *
+     * @param className the class name
+     */
+    public void remove(String className) {
+        if (entries.remove(className) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Removes classes which are no longer application classes, e.g. after their sources were deleted.
+     *
+     * @param classNames names of current application classes
+     */
+    public void retain(Collection<String> classNames) {
+        if (entries.keySet().retainAll(new HashSet<String>(classNames))) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Gets methods of given class that received security checks.
+     *
+     * @param className the class name
+     * @return enhanced methods as name followed by descriptor, empty if class is not known or has no secured methods
+     */
+    public List<String> getSecuredMethods(String className) {
+        List<String> methods = entries.get(className);
+        return methods != null ? methods : Collections.<String>emptyList();
+    }
+
+    /**
+     * Gets names of indexed classes having methods with security checks.
+     *
+     * @return the class names
+     */
+    public List<String> getSecuredClasses() {
+        List<String> classes = new ArrayList<String>(entries.keySet());
+        Collections.sort(classes);
+        return classes;
+    }
+
+    /**
+     * Writes the index to its file if anything changed since it was loaded.
+     */
+    public void save() {
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            Logger.warn("Cannot create directory of security enhancement index %s", file);
+            return;
+        }
+
+        BufferedWriter writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            writer.write(HEADER);
+            writer.newLine();
+            for (Map.Entry<String, List<String>> entry : new TreeMap<String, List<String>>(entries).entrySet()) {
+                writer.write(entry.getKey());
+                List<String> methods = entry.getValue();
+                for (int i = 0; i < methods.size(); i++) {
+                    writer.write(i == 0 ? " " : METHOD_SEPARATOR);
+                    writer.write(methods.get(i));
+                }
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            Logger.warn(e, "Cannot write security enhancement index %s", file);
+        } finally {
+            close(writer);
+        }
+    }
+
+    private static void close(java.io.Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Logger.debug("Cannot close security enhancement index: %s", e.getMessage());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.lang.annotation.Annotation
 
 import javassist.*
 import play.Logger
+import play.Play
 import play.classloading.ApplicationClasses.ApplicationClass
 import play.classloading.enhancers.Enhancer
 
@@ -19,43 +20,204 @@ import static javassist.Modifier.*
  */
 public class SecurityEnhancer extends Enhancer {
 
+    /**
+     * Prefix of static fields holding {@link security.SecurityPlan} of enhanced methods.
+     */
+    static final String PLAN_FIELD_PREFIX = "__securityPlan"
+
+    /**
+     * Index of enhanced classes and their secured methods, null if they are not recorded.
+     */
+    EnhancementIndex index
+
     /**
      * Check if class should be enhanced and add security check as first step to all methods
-     * that requires security check.
+     * that requires security check. Classes not referencing security annotations in their constant pool
+     * are skipped before they are parsed, unless they may inherit them from application superclass.
      *
      * @param ac class to enhance
      * @throws Exception
      */
     @Override
     public void enhanceThisClass(ApplicationClass ac) throws Exception {
+        byte[] bytecode = ac.enhancedByteCode ?: ac.javaByteCode
+        if (!ConstantPoolScanner.referencesSecurityAnnotations(bytecode) && !mayInheritSecurityAnnotations(bytecode)) {
+            index?.remove(ac.name)
+            return
+        }
+        if (ConstantPoolScanner.isEnhanced(bytecode)) {
+            Logger.debug "Security checks already added to ${ac.name}"
+            return
+        }
+
         CtClass clazz = makeClass(ac)
+        index?.record(ac.name, enhanceClass(ac, clazz))
+    }
+
+    /**
+     * Check if application superclass of class, or any of its application superclasses, references security
+     * annotations. Superclasses not compiled yet are assumed to reference them.
+     *
+     * @param bytecode class file of the class
+     * @return
+     */
+    private boolean mayInheritSecurityAnnotations(byte[] bytecode) {
+        String superclass = ConstantPoolScanner.getSuperclassName(bytecode)
+        ApplicationClass parent = superclass != null ? Play.classes?.getApplicationClass(superclass) : null
+        if (parent == null) {
+            return false
+        }
 
-        final boolean shouldRebuildClass = false
+        byte[] parentBytecode = parent.javaByteCode
+        return parentBytecode == null || ConstantPoolScanner.referencesSecurityAnnotations(parentBytecode) ||
+                mayInheritSecurityAnnotations(parentBytecode)
+    }
+
+    /**
+     * Add security checks to all methods of the class that require them and store enhanced bytecode
+     * in application class.
+     *
+     * @param ac
+     * @param clazz class made of bytecode of application class
+     * @return enhanced methods as name followed by descriptor, empty if class was left untouched
+     */
+    List<String> enhanceClass(ApplicationClass ac, CtClass clazz) {
+        List<String> securedMethods = []
         def methods = clazz.getDeclaredMethods()
         methods.grep({shouldEnhance(clazz, it)}).each { method ->
-            Logger.debug "Injecting validation code in method: ${method.longName}"
-            enhanceMethod(clazz, method)
-            shouldRebuildClass = true
+            if (enhanceMethod(clazz, method, securedMethods.size())) {
+                securedMethods << method.name + method.signature
+            }
         }
-            
-            
-        if (shouldRebuildClass) {
+
+        if (!securedMethods.empty) {
             clazz.rebuildClassFile()
 
             ac.enhancedByteCode = clazz.toBytecode();
             clazz.defrost();
         }
+        return securedMethods
     }
 
     /**
-     * Insert security.Security.getInstance().executeSecurityChecks call in the beginning of a method
+     * Add static field with plan of the method initialized once in class initializer and insert checks
+     * specialised for annotations of the method in the beginning of it: resource check for
+     * {@link security.annotation.RestrictedResource}, role holder null check for
+     * {@link security.annotation.AnyRole}, role test for {@link security.annotation.RoleRequired} and
+     * access check of arguments annotated with {@link security.annotation.Access}. Only the first failed check is
+     * reported, so a handler that does not throw sees the denial once.
+     * Methods annotated with {@link security.annotation.Unsecured} or without any check are left untouched.
+     *
      * @param clazz
      * @param method
+     * @param planIndex index of the plan field in the class
+     * @return true if method was enhanced
+     */
+    private boolean enhanceMethod(CtClass clazz, CtMethod method, int planIndex) {
+        if (hasAnnotation(method, "security.annotation.Unsecured")) {
+            return false
+        }
+
+        boolean roleRequired = hasAnnotationOnMethodOrClass(clazz, method, "security.annotation.RoleRequired")
+        boolean anyRole = hasAnnotationOnMethodOrClass(clazz, method, "security.annotation.AnyRole")
+        boolean restrictedResource = hasAnnotationOnMethodOrClass(clazz, method, "security.annotation.RestrictedResource")
+        String accessArguments = accessArguments(method)
+
+        if (!roleRequired && !anyRole && !restrictedResource && accessArguments.empty) {
+            return false
+        }
+
+        Logger.debug "Injecting validation code in method: ${method.longName}"
+        String planField = PLAN_FIELD_PREFIX + planIndex
+        clazz.addField(CtField.make("private static final security.SecurityPlan ${planField} = " +
+                "security.SecurityPlan.forMethod(${clazz.name}.class, \"${method.name}\", \"${method.signature}\");", clazz))
+
+        StringBuilder code = new StringBuilder("{")
+        code << "security.Security __security = security.Security.getInstance();"
+        code << "security.role.RoleHolder __roleHolder = __security.getRoleHolder(${planField});"
+        List<String> denials = []
+        if (restrictedResource) {
+            denials << "!__security.isRestrictedResourceAllowed(__roleHolder, ${planField})"
+        }
+        if (roleRequired) {
+            denials << "!__security.hasRequiredRole(__roleHolder, ${planField})"
+        }
+        if (anyRole) {
+            denials << "__roleHolder == null"
+        }
+        if (!denials.empty) {
+            code << "if (${denials.join(' || ')}) { __security.onAccessFailure(${planField}); }"
+            if (!accessArguments.empty) {
+                code << " else "
+            }
+        }
+        if (!accessArguments.empty) {
+            code << "{ __security.executeAccessCheck(__roleHolder, ${planField}${accessArguments}); }"
+        }
+        code << "}"
+
+        method.insertBefore(code.toString())
+        return true
+    }
+
+    /**
+     * Check if annotation is present on method, its class or superclass. Mirrors lookup of
+     * {@link java.lang.annotation.Inherited} annotations done by {@link security.SecurityPlan}, so methods are enhanced
+     * exactly when their plan has checks.
+     *
+     * @param clazz
+     * @param method
+     * @param annotation
      * @return
      */
-    private def enhanceMethod(CtClass clazz, CtMethod method) {
-        Logger.debug "Enhancing: ${method.longName}"
-        method.insertBefore("security.Security.getInstance().executeSecurityChecks(${clazz.name}.class, \"${method.name}\", \$sig, \$args);")
+    private boolean hasAnnotationOnMethodOrClass(CtClass clazz, CtMethod method, String annotation) {
+        if (hasAnnotation(method, annotation)) {
+            return true
+        }
+
+        for (CtClass type = clazz; type != null; type = superclassOf(type)) {
+            if (hasAnnotation(type, annotation)) {
+                return true
+            }
+        }
+        return false
+    }
+
+    private CtClass superclassOf(CtClass type) {
+        try {
+            return type.getSuperclass()
+        } catch (NotFoundException e) {
+            return null
+        }
+    }
+
+    /**
+     * Build arguments list of method parameters annotated with {@link security.annotation.Access}.
+     * One or two arguments are passed directly, more are passed as array.
+     *
+     * @param method
+     * @return source of arguments to append after the plan argument
+     */
+    private String accessArguments(CtMethod method) {
+        def parameterTypes = method.getParameterTypes()
+        def arguments = []
+        method.getParameterAnnotations().eachWithIndex { annotations, i ->
+            if (annotations.any { isAccess(it) }) {
+                String argument = "\$${i + 1}"
+                arguments << (parameterTypes[i].isPrimitive() ? "(\$w)${argument}" : "(java.lang.Object)${argument}")
+            }
+        }
+
+        if (arguments.empty) {
+            return ""
+        } else if (arguments.size() <= 2) {
+            return ", " + arguments.join(", ")
+        }
+        return ", new java.lang.Object[] {" + arguments.join(", ") + "}"
+    }
+
+    private boolean isAccess(Object annotation) {
+        return ((Annotation) annotation).annotationType().getName().equals("security.annotation.Access")
     }
 
     /**
@@ -66,17 +228,18 @@ public class SecurityEnhancer extends Enhancer {
      * @return
      */
     private boolean shouldEnhance(CtClass clazz, CtMethod method) {
-        boolean isAnnotation = false;
-        
-        isAnnotation = (hasAnnotation(method, "security.annotation.RoleRequired")
-        || hasAnnotation(method, "security.annotation.AnyRole")
-        || hasAnnotation(method, "security.annotation.Unsecured")
-        || hasAnnotation(clazz, "security.annotation.RoleRequired")
-        || hasAnnotation(clazz, "security.annotation.AnyRole")
-        || hasAnnotation(clazz, "security.annotation.Unsecured"))
- 
+        if (isAbstract(method.modifiers) || isNative(method.modifiers)) {
+            return false
+        }
+
+        boolean isAnnotation = (hasAnnotation(method, "security.annotation.Unsecured")
+        || hasAnnotation(clazz, "security.annotation.Unsecured")
+        || hasAnnotationOnMethodOrClass(clazz, method, "security.annotation.RoleRequired")
+        || hasAnnotationOnMethodOrClass(clazz, method, "security.annotation.AnyRole")
+        || hasAnnotationOnMethodOrClass(clazz, method, "security.annotation.RestrictedResource"))
+
         if (!isAnnotation) {
-            isAnnotation = !method.getParameterAnnotations().flatten().grep({((Annotation)it).annotationType().getName().equals("security.annotation.Access")}).empty
+            isAnnotation = !method.getParameterAnnotations().flatten().grep({isAccess(it)}).empty
         }
         
         return isAnnotation
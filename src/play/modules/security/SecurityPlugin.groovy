@@ -1,7 +1,11 @@
 package play.modules.security
 
+import java.util.concurrent.ConcurrentHashMap
+
+import com.google.gson.JsonObject
 import javassist.runtime.Desc
 import play.Logger
+import play.Play
 import play.PlayPlugin
 import play.classloading.ApplicationClasses.ApplicationClass
 
@@ -11,18 +15,132 @@ import play.classloading.ApplicationClasses.ApplicationClass
  */
 public class SecurityPlugin extends PlayPlugin {
 
+    /**
+     * Location of {@link EnhancementIndex} in tmp directory of the application.
+     */
+    static final String INDEX_FILE = "security/enhancement.index"
+
+    /**
+     * Location of {@link EnhancementIndex} of precompiled classes in the application directory. It is written by
+     * <code>play precompile</code> and read instead of the index in tmp directory when precompiled classes are used,
+     * because Playframework does not enhance them again.
+     */
+    static final String MANIFEST_FILE = "precompiled/security/enhancement.index"
+
     private final SecurityEnhancer enhancer = new SecurityEnhancer()
 
+    /**
+     * Whether classes are enhanced by <code>play precompile</code>, which does not start the application, so the
+     * manifest is saved as soon as an enhanced class changes it.
+     */
+    private boolean precompiling
+
+    private volatile ModuleClasses moduleClasses
+
     @Override
     public void enhance(ApplicationClass applicationClass)
     throws Exception {
         enhancer.enhanceThisClass(applicationClass)
+        if (precompiling) {
+            enhancer.index.save()
+        }
     }
 
     @Override
     void onLoad() {
         Logger.debug("Configuring Javassist to use context classloader");
         Desc.useContextClassLoader = true
+        if (Play.usePrecompiled) {
+            enhancer.index = EnhancementIndex.load(new File(Play.applicationPath, MANIFEST_FILE))
+        } else if (System.getProperty("precompile") != null) {
+            enhancer.index = new EnhancementIndex(new File(Play.applicationPath, MANIFEST_FILE))
+            precompiling = true
+        } else {
+            enhancer.index = EnhancementIndex.load(Play.tmpDir != null ? new File(Play.tmpDir, INDEX_FILE) : null)
+        }
+    }
+
+    @Override
+    void onConfigurationRead() {
+        if (Play.classloader != null) {
+            moduleClass("security.SecurityConfig").reload(Play.configuration)
+            moduleClass("security.tags.SecurityTags").clearFragmentCache()
+        }
+    }
+
+    @Override
+    void onApplicationStart() {
+        if (!Play.usePrecompiled && enhancer.index != null) {
+            enhancer.index.retain(Play.classes.all()*.name)
+            enhancer.index.save()
+        }
+        moduleClass("security.SecurityPlan").clearCache()
+        moduleClass("security.tags.SecurityTags").clearFragmentCache()
+        if (moduleClass("security.SecurityConfig").get().isWarmup()) {
+            moduleClass("security.SecurityWarmup").warmUp(enhancer.index?.securedClasses ?: [])
+        }
+    }
+
+    @Override
+    void onApplicationStop() {
+        moduleClass("security.AccessCheckExecutor").shutdown()
+        moduleClass("security.SecurityMetrics").clearMethods()
+    }
+
+    @Override
+    String getStatus() {
+        return Play.classloader != null ? moduleClass("security.SecurityMetrics").getStatus() : null
+    }
+
+    @Override
+    JsonObject getJsonStatus() {
+        return Play.classloader != null ? moduleClass("security.SecurityMetrics").getJsonStatus() : null
+    }
+
+    @Override
+    void beforeInvocation() {
+        moduleClass("security.SecurityContext").open()
+    }
+
+    @Override
+    void invocationFinally() {
+        moduleClass("security.SecurityContext").current()?.close()
+    }
+
+    /**
+     * Gets class of the module from app/. Such classes are loaded by application classloader, which is not visible
+     * to classloader of the plugin, so they are looked up by name until application classes are reloaded.
+     *
+     * @param name
+     * @return
+     */
+    private Class moduleClass(String name) {
+        ModuleClasses classes = moduleClasses
+        if (classes == null || !classes.classLoader.is(Play.classloader)) {
+            classes = new ModuleClasses(Play.classloader)
+            moduleClasses = classes
+        }
+        return classes.get(name)
+    }
+
+    private static class ModuleClasses {
+
+        final ClassLoader classLoader
+
+        private final Map<String, Class> classes = new ConcurrentHashMap<String, Class>()
+
+        ModuleClasses(ClassLoader classLoader) {
+            this.classLoader = classLoader
+        }
+
+        Class get(String name) {
+            Class clazz = classes.get(name)
+            if (clazz == null) {
+                clazz = classLoader.loadClass(name)
+                classes.put(name, clazz)
+            }
+            return clazz
+        }
     }
 
 }